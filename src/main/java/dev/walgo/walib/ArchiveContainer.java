@@ -0,0 +1,269 @@
+package dev.walgo.walib;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Classpath entry, located in archive: archive itself, nested archive or directory inside archive.
+ *
+ * <p>
+ * Nested locations use "!/" as separator, e.g. "app.jar!/BOOT-INF/lib/lib.jar" (stored nested
+ * archive) or "app.jar!/BOOT-INF/classes/" (directory inside archive). Nested archives are read in
+ * place, without extraction.
+ *
+ * <p>
+ * Archive itself (not directory inside archive) is viewed as multi-release JAR (see
+ * {@link MultiRelease}): versioned entries for running Java are visible by logical names and
+ * shadow base entries.
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+final class ArchiveContainer {
+
+    /** Separator of nested location. */
+    static final String SEPARATOR = "!/";
+
+    private final ZipDirectory zip;
+    private final String prefix;
+    private final byte[] prefixBytes;
+    private volatile MultiRelease multiRelease;
+
+    private ArchiveContainer(ZipDirectory zip, String prefix) {
+        this.zip = zip;
+        this.prefix = prefix;
+        this.prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Create container for directory inside archive.
+     *
+     * @param zip    archive
+     * @param prefix directory name (with trailing "/"), empty for whole archive
+     * @return container
+     */
+    static ArchiveContainer of(ZipDirectory zip, String prefix) {
+        return new ArchiveContainer(zip, prefix);
+    }
+
+    /**
+     * Check if location is nested (inside other archive).
+     *
+     * @param location classpath entry
+     * @return true for nested location
+     */
+    static boolean isNested(String location) {
+        return location.contains(SEPARATOR);
+    }
+
+    /**
+     * Gets file of archive, which contains given location.
+     *
+     * @param location classpath entry
+     * @return outer archive file (or location itself, when it's not nested)
+     */
+    static File getFile(String location) {
+        int pos = location.indexOf(SEPARATOR);
+        return new File(pos < 0 ? location : location.substring(0, pos));
+    }
+
+    /**
+     * Open container.
+     *
+     * @param location classpath entry
+     * @return opened container or null, when location is not archive (e.g. directory)
+     * @throws IOException on archive read error
+     */
+    static ArchiveContainer open(String location) throws IOException {
+        int separator = location.indexOf(SEPARATOR);
+        File file = new File(separator < 0 ? location : location.substring(0, separator));
+        if (!file.isFile()) {
+            return null;
+        }
+        ZipDirectory zip = ZipDirectory.open(file.toPath());
+        String rest = separator < 0 ? "" : location.substring(separator + SEPARATOR.length());
+        while (!rest.isEmpty()) {
+            int pos = rest.indexOf(SEPARATOR);
+            String name = pos < 0 ? rest : rest.substring(0, pos);
+            if (name.endsWith("/")) {
+                if (pos >= 0) {
+                    throw new IOException("Wrong nested location: " + location);
+                }
+                return new ArchiveContainer(zip, name);
+            }
+            zip = openNested(zip, name);
+            rest = pos < 0 ? "" : rest.substring(pos + SEPARATOR.length());
+        }
+        return new ArchiveContainer(zip, "");
+    }
+
+    /**
+     * Open nested archive, without extraction. Only stored (not compressed) nested archive is
+     * supported.
+     *
+     * @param zip  outer archive
+     * @param name nested archive name
+     * @return nested archive
+     * @throws IOException when nested archive not found, compressed or broken
+     */
+    static ZipDirectory openNested(ZipDirectory zip, String name) throws IOException {
+        int entry = zip.find(name);
+        if (entry < 0) {
+            throw new IOException("Nested archive [" + name + "] not found in " + zip.getLocation());
+        }
+        return openNested(zip, entry);
+    }
+
+    /**
+     * Open nested archive, without extraction. Only stored (not compressed) nested archive is
+     * supported.
+     *
+     * @param zip   outer archive
+     * @param entry nested archive entry index
+     * @return nested archive
+     * @throws IOException when nested archive is compressed or broken
+     */
+    static ZipDirectory openNested(ZipDirectory zip, int entry) throws IOException {
+        String location = zip.getLocation() + SEPARATOR + zip.getName(entry);
+        if (zip.getMethod(entry) != ZipDirectory.STORED) {
+            throw new IOException("Nested archive is compressed: " + location);
+        }
+        return ZipDirectory.of(location, zip.getRawData(entry));
+    }
+
+    /**
+     * Gets archive, which contains container resources.
+     *
+     * @return archive
+     */
+    ZipDirectory getArchive() {
+        return zip;
+    }
+
+    /**
+     * Gets resource name prefix in archive (for directory inside archive).
+     *
+     * @return name prefix, empty for archive itself
+     */
+    String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Gets resource name of archive entry.
+     *
+     * @param entry entry index
+     * @return resource name (without prefix) or null, when entry is directory or not under prefix
+     */
+    String getResourceName(int entry) {
+        if (zip.isDirectory(entry) || !zip.nameStartsWith(entry, prefixBytes)) {
+            return null;
+        }
+        MultiRelease versions = getMultiRelease();
+        if (versions.isHidden(entry)) {
+            return null;
+        }
+        String name = zip.getName(entry);
+        if (versions.isVersioned(entry)) {
+            return MultiRelease.getLogicalName(name);
+        }
+        return prefix.isEmpty() ? name : name.substring(prefix.length());
+    }
+
+    /**
+     * Find archive entry of container resource. For multi-release JAR versioned entry is preferred.
+     *
+     * @param name resource name (without prefix)
+     * @return entry index or -1, when not found
+     */
+    int lookup(String name) {
+        for (int release : getMultiRelease().getReleases()) {
+            int entry = zip.lookup(MultiRelease.VERSIONS_DIR + release + "/" + name);
+            if (entry >= 0 && !zip.isDirectory(entry)) {
+                return entry;
+            }
+        }
+        return zip.lookup(prefix + name);
+    }
+
+    /**
+     * Gets multi-release view of container archive.
+     *
+     * @return view, {@link MultiRelease#NONE} for directory inside archive or not multi-release
+     *         archive
+     */
+    MultiRelease getMultiRelease() {
+        MultiRelease result = multiRelease;
+        if (result == null) {
+            result = MultiRelease.NONE;
+            if (prefix.isEmpty()) {
+                try {
+                    result = MultiRelease.of(zip, MultiRelease.RUNTIME_RELEASE);
+                } catch (IOException ex) {
+                    // broken manifest: use entries as is
+                    result = MultiRelease.NONE;
+                }
+            }
+            multiRelease = result;
+        }
+        return result;
+    }
+
+    /**
+     * Gets archive entries of container resources, which are accepted by filter.
+     *
+     * @param filter resource filter
+     * @return stream of entry indexes (lazy)
+     */
+    IntStream entries(ResourceFilter filter) {
+        int offset = prefixBytes.length;
+        MultiRelease versions = getMultiRelease();
+        if (versions != MultiRelease.NONE) {
+            // filter is applied to logical name
+            return IntStream.range(0, zip.size())
+                    .filter(i -> {
+                        String name = getResourceName(i);
+                        return name != null && filter.accept(name);
+                    });
+        }
+        return IntStream.range(0, zip.size())
+                .filter(i -> !zip.isDirectory(i) && zip.nameStartsWith(i, prefixBytes) && filter.accept(zip, i, offset));
+    }
+
+    /**
+     * Gets names of container resources, accepted by filter. Filter is applied to raw entry name.
+     *
+     * @param filter resource filter, null - all resources
+     * @return resource names (without prefix)
+     */
+    List<String> getNames(ResourceFilter filter) {
+        if (filter == null) {
+            return getNames();
+        }
+        List<String> result = new ArrayList<>();
+        entries(filter).forEach(i -> result.add(getResourceName(i)));
+        return result;
+    }
+
+    /**
+     * Gets names of all container resources.
+     *
+     * @return resource names (without prefix)
+     */
+    List<String> getNames() {
+        if (prefix.isEmpty() && getMultiRelease() == MultiRelease.NONE) {
+            return zip.getNames();
+        }
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < zip.size(); i++) {
+            String name = getResourceName(i);
+            if (name != null) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+}
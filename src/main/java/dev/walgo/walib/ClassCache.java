@@ -0,0 +1,217 @@
+package dev.walgo.walib;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Concurrent cache of loaded classes, keyed by (class loader, class name).
+ *
+ * <p>
+ * Reads are lock-free. Class loaders are held weakly and cached classes are held by weak
+ * references, so cache doesn't prevent unloading of class loader (class is alive while its loader is
+ * alive). Not found classes are cached for limited time (negative TTL), other load errors (e.g.
+ * error of static initializer, also reported by later calls as {@link NoClassDefFoundError}) are
+ * not cached.
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+public final class ClassCache {
+
+    /** Default time to keep "class not found" result. */
+    public static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofMinutes(1);
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClassCache.class);
+    /** Message of {@link NoClassDefFoundError} for class, which static initializer failed before. */
+    private static final String INIT_ERROR = "Could not initialize class ";
+
+    /**
+     * Class name -> ClassRef (weak reference of class) or Long (expiration time of "not found"
+     * result), per class loader.
+     */
+    private final Map<LoaderKey, Map<String, Object>> loaders = new ConcurrentHashMap<>();
+    /** Same as loaders, for bootstrap class loader. */
+    private final Map<String, Object> bootstrapClasses = new ConcurrentHashMap<>();
+    private final ReferenceQueue<ClassLoader> queue = new ReferenceQueue<>();
+    private final long negativeTtl;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Create cache.
+     *
+     * @param negativeTtl time to keep "class not found" result, zero - don't cache it
+     */
+    public ClassCache(Duration negativeTtl) {
+        this.negativeTtl = negativeTtl.toNanos();
+    }
+
+    /**
+     * Gets class by name, loaded (and initialized) by given class loader. See
+     * {@link Class#forName(String, boolean, ClassLoader)}.
+     *
+     * @param className class name
+     * @param loader    class loader, null - bootstrap class loader
+     * @return class or null, when class not found (or can't be loaded)
+     */
+    public Class<?> get(String className, ClassLoader loader) {
+        return get(className, true, loader);
+    }
+
+    /**
+     * Gets class by name, loaded by given class loader. See
+     * {@link Class#forName(String, boolean, ClassLoader)}.
+     *
+     * @param className  class name
+     * @param initialize true - class should be initialized (static initializers are run), false -
+     *                   only loaded
+     * @param loader     class loader, null - bootstrap class loader
+     * @return class or null, when class not found (or can't be loaded)
+     */
+    public Class<?> get(String className, boolean initialize, ClassLoader loader) {
+        Map<String, Object> classes = getClasses(loader);
+        Object cached = classes.get(className);
+        if (cached instanceof ClassRef) {
+            ClassRef ref = (ClassRef) cached;
+            Class<?> clazz = ref.get();
+            if (clazz != null && (ref.initialized || !initialize)) {
+                hits.increment();
+                return clazz;
+            }
+        } else if (cached != null && System.nanoTime() - (Long) cached < 0) {
+            hits.increment();
+            return null;
+        }
+        misses.increment();
+        try {
+            Class<?> clazz = Class.forName(className, initialize, loader);
+            classes.merge(className, new ClassRef(clazz, initialize), ClassCache::mergeRefs);
+            return clazz;
+        } catch (ClassNotFoundException ex) {
+            return notFound(classes, className, ex);
+        } catch (NoClassDefFoundError ex) {
+            if (ex.getMessage() == null || !ex.getMessage().startsWith(INIT_ERROR)) {
+                return notFound(classes, className, ex);
+            }
+            LOG.warn("Class can't be loaded: {} - {}", className, ex.toString());
+            return null;
+        } catch (LinkageError ex) {
+            // e.g. static initializer error: class can be loaded, so it's not cached as "not found"
+            LOG.warn("Class can't be loaded: {} - {}", className, ex.toString());
+            return null;
+        }
+    }
+
+    /** Cache "not found" result, when class is not loaded concurrently. */
+    private Class<?> notFound(Map<String, Object> classes, String className, Throwable ex) {
+        LOG.warn("Class not found: {} - {}", className, ex.getMessage());
+        if (negativeTtl > 0) {
+            Long expiry = System.nanoTime() + negativeTtl;
+            classes.compute(className, (key, old) -> isLoaded(old) ? old : expiry);
+        }
+        return null;
+    }
+
+    /** Check if cache value is reference to loaded class. */
+    private static boolean isLoaded(Object value) {
+        return value instanceof ClassRef && ((ClassRef) value).get() != null;
+    }
+
+    /** Keep reference to initialized class, when the same class is loaded concurrently. */
+    private static Object mergeRefs(Object oldValue, Object newValue) {
+        if (oldValue instanceof ClassRef && ((ClassRef) oldValue).initialized
+                && ((ClassRef) oldValue).get() == ((ClassRef) newValue).get()) {
+            return oldValue;
+        }
+        return newValue;
+    }
+
+    /**
+     * Gets count of cache hits (including cached "not found" results).
+     *
+     * @return count of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets count of cache misses (class loader calls).
+     *
+     * @return count of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Remove all cached classes and reset counters.
+     */
+    public void clear() {
+        loaders.clear();
+        bootstrapClasses.clear();
+        hits.reset();
+        misses.reset();
+    }
+
+    private Map<String, Object> getClasses(ClassLoader loader) {
+        if (loader == null) {
+            return bootstrapClasses;
+        }
+        Map<String, Object> classes = loaders.get(new LoaderKey(loader, null));
+        if (classes != null) {
+            return classes;
+        }
+        expungeStaleLoaders();
+        return loaders.computeIfAbsent(new LoaderKey(loader, queue), key -> new ConcurrentHashMap<>());
+    }
+
+    private void expungeStaleLoaders() {
+        Object key;
+        while ((key = queue.poll()) != null) {
+            loaders.remove(key);
+        }
+    }
+
+    /** Weak reference of loaded class. */
+    private static final class ClassRef extends WeakReference<Class<?>> {
+        private final boolean initialized;
+
+        private ClassRef(Class<?> clazz, boolean initialized) {
+            super(clazz);
+            this.initialized = initialized;
+        }
+    }
+
+    /** Weak class loader key, compared by loader identity. */
+    private static final class LoaderKey extends WeakReference<ClassLoader> {
+        private final int hash;
+
+        private LoaderKey(ClassLoader loader, ReferenceQueue<ClassLoader> queue) {
+            super(loader, queue);
+            this.hash = System.identityHashCode(loader);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof LoaderKey)) {
+                return false;
+            }
+            ClassLoader loader = get();
+            return loader != null && loader == ((LoaderKey) obj).get();
+        }
+    }
+}
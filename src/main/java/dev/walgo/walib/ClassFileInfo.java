@@ -0,0 +1,347 @@
+package dev.walgo.walib;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class header information, read directly from class file bytes (without class loading).
+ *
+ * <p>
+ * Only access flags, class name, super class, interfaces and runtime visible class annotations are
+ * read.
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+public final class ClassFileInfo {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ABSTRACT = 0x0400;
+    private static final int ACC_ANNOTATION = 0x2000;
+    private static final int ACC_MODULE = 0x8000;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+    private final String name;
+    private final int accessFlags;
+    private final String superName;
+    private final List<String> interfaces;
+    private final List<String> annotations;
+
+    ClassFileInfo(
+            String name, int accessFlags, String superName, List<String> interfaces, List<String> annotations) {
+        this.name = name;
+        this.accessFlags = accessFlags;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.annotations = annotations;
+    }
+
+    /**
+     * Read class header from stream.
+     *
+     * @param in class file content
+     * @return class header
+     * @throws IOException on read error or when content is not class file
+     */
+    public static ClassFileInfo read(InputStream in) throws IOException {
+        return read(ByteBuffer.wrap(in.readAllBytes()));
+    }
+
+    /**
+     * Read class header from buffer. Buffer position is changed.
+     *
+     * @param buffer class file content
+     * @return class header
+     * @throws IOException when content is not class file
+     */
+    public static ClassFileInfo read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a class file");
+            }
+            buffer.getInt(); // minor & major version
+            int[] offsets = readConstantPool(buffer);
+            int accessFlags = buffer.getShort() & 0xFFFF;
+            String name = className(buffer, offsets, buffer.getShort() & 0xFFFF);
+            String superName = className(buffer, offsets, buffer.getShort() & 0xFFFF);
+            int interfaceCount = buffer.getShort() & 0xFFFF;
+            List<String> interfaces = new ArrayList<>(interfaceCount);
+            for (int i = 0; i < interfaceCount; i++) {
+                interfaces.add(className(buffer, offsets, buffer.getShort() & 0xFFFF));
+            }
+            skipMembers(buffer); // fields
+            skipMembers(buffer); // methods
+            List<String> annotations = readAnnotations(buffer, offsets);
+            return new ClassFileInfo(name, accessFlags, superName, Collections.unmodifiableList(interfaces),
+                    annotations);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException ex) {
+            throw new IOException("Broken class file", ex);
+        }
+    }
+
+    /**
+     * Read constant pool.
+     *
+     * @return offsets of constant pool entries in buffer (offset of entry tag)
+     */
+    private static int[] readConstantPool(ByteBuffer buffer) throws IOException {
+        int count = buffer.getShort() & 0xFFFF;
+        int[] offsets = new int[count];
+        for (int i = 1; i < count; i++) {
+            offsets[i] = buffer.position();
+            int tag = buffer.get();
+            switch (tag) {
+                case CONSTANT_UTF8:
+                    int length = buffer.getShort() & 0xFFFF;
+                    buffer.position(buffer.position() + length);
+                    break;
+                case CONSTANT_CLASS:
+                case CONSTANT_STRING:
+                case CONSTANT_METHOD_TYPE:
+                case CONSTANT_MODULE:
+                case CONSTANT_PACKAGE:
+                    buffer.position(buffer.position() + 2);
+                    break;
+                case CONSTANT_METHOD_HANDLE:
+                    buffer.position(buffer.position() + 3);
+                    break;
+                case CONSTANT_INTEGER:
+                case CONSTANT_FLOAT:
+                case CONSTANT_FIELDREF:
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF:
+                case CONSTANT_NAME_AND_TYPE:
+                case CONSTANT_DYNAMIC:
+                case CONSTANT_INVOKE_DYNAMIC:
+                    buffer.position(buffer.position() + 4);
+                    break;
+                case CONSTANT_LONG:
+                case CONSTANT_DOUBLE:
+                    buffer.position(buffer.position() + 8);
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag: " + tag);
+            }
+        }
+        return offsets;
+    }
+
+    /** Skip fields or methods. */
+    private static void skipMembers(ByteBuffer buffer) {
+        int count = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < count; i++) {
+            buffer.position(buffer.position() + 6); // access flags, name, descriptor
+            skipAttributes(buffer);
+        }
+    }
+
+    private static void skipAttributes(ByteBuffer buffer) {
+        int count = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < count; i++) {
+            buffer.position(buffer.position() + 2); // name
+            int length = buffer.getInt();
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+    /** Read class attributes and extract types of runtime visible annotations. */
+    private static List<String> readAnnotations(ByteBuffer buffer, int[] offsets) throws IOException {
+        List<String> result = Collections.emptyList();
+        int count = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < count; i++) {
+            String attribute = utf8(buffer, offsets, buffer.getShort() & 0xFFFF);
+            int length = buffer.getInt();
+            int end = buffer.position() + length;
+            if (RUNTIME_VISIBLE_ANNOTATIONS.equals(attribute)) {
+                int annotationCount = buffer.getShort() & 0xFFFF;
+                result = new ArrayList<>(annotationCount);
+                for (int j = 0; j < annotationCount; j++) {
+                    result.add(readAnnotation(buffer, offsets));
+                }
+                result = Collections.unmodifiableList(result);
+            }
+            buffer.position(end);
+        }
+        return result;
+    }
+
+    /** Read annotation structure, returns annotation type. */
+    private static String readAnnotation(ByteBuffer buffer, int[] offsets) throws IOException {
+        String descriptor = utf8(buffer, offsets, buffer.getShort() & 0xFFFF);
+        int pairCount = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < pairCount; i++) {
+            buffer.position(buffer.position() + 2); // element name
+            skipElementValue(buffer, offsets);
+        }
+        // descriptor: Lmy/package/MyAnnotation;
+        return descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+    }
+
+    private static void skipElementValue(ByteBuffer buffer, int[] offsets) throws IOException {
+        int tag = buffer.get();
+        switch (tag) {
+            case 'e': // enum: type, name
+                buffer.position(buffer.position() + 4);
+                break;
+            case '@':
+                readAnnotation(buffer, offsets);
+                break;
+            case '[':
+                int count = buffer.getShort() & 0xFFFF;
+                for (int i = 0; i < count; i++) {
+                    skipElementValue(buffer, offsets);
+                }
+                break;
+            default: // constant or class
+                buffer.position(buffer.position() + 2);
+                break;
+        }
+    }
+
+    /** Gets Utf8 constant. */
+    static String utf8(ByteBuffer buffer, int[] offsets, int index) throws IOException {
+        int offset = offsets[index];
+        if (index == 0 || buffer.get(offset) != CONSTANT_UTF8) {
+            throw new IOException("Wrong Utf8 constant index: " + index);
+        }
+        int length = buffer.getShort(offset + 1) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(offset + 3, bytes);
+        // class names never contain characters, which modified UTF-8 encodes differently
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Gets class name (dot separated) from Class constant, null for zero index. */
+    private static String className(ByteBuffer buffer, int[] offsets, int index) throws IOException {
+        if (index == 0) {
+            return null;
+        }
+        int offset = offsets[index];
+        if (buffer.get(offset) != CONSTANT_CLASS) {
+            throw new IOException("Wrong Class constant index: " + index);
+        }
+        return utf8(buffer, offsets, buffer.getShort(offset + 1) & 0xFFFF).replace('/', '.');
+    }
+
+    /**
+     * Gets class name.
+     *
+     * @return class name, e.g. "java.lang.String"
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets class access flags (see {@link java.lang.reflect.Modifier}).
+     *
+     * @return access flags
+     */
+    public int getAccessFlags() {
+        return accessFlags;
+    }
+
+    /**
+     * Gets super class name.
+     *
+     * @return super class name, null for java.lang.Object and module-info
+     */
+    public String getSuperName() {
+        return superName;
+    }
+
+    /**
+     * Gets names of directly implemented interfaces.
+     *
+     * @return interface names
+     */
+    public List<String> getInterfaces() {
+        return interfaces;
+    }
+
+    /**
+     * Gets types of runtime visible annotations, directly present on class.
+     *
+     * @return annotation class names
+     */
+    public List<String> getAnnotations() {
+        return annotations;
+    }
+
+    /**
+     * Check if class is interface (annotation too).
+     *
+     * @return true for interface
+     */
+    public boolean isInterface() {
+        return (accessFlags & ACC_INTERFACE) != 0;
+    }
+
+    /**
+     * Check if class is abstract (interface too).
+     *
+     * @return true for abstract class
+     */
+    public boolean isAbstract() {
+        return (accessFlags & ACC_ABSTRACT) != 0;
+    }
+
+    /**
+     * Check if class is annotation.
+     *
+     * @return true for annotation
+     */
+    public boolean isAnnotation() {
+        return (accessFlags & ACC_ANNOTATION) != 0;
+    }
+
+    /**
+     * Check if class is module descriptor (module-info).
+     *
+     * @return true for module
+     */
+    public boolean isModule() {
+        return (accessFlags & ACC_MODULE) != 0;
+    }
+
+    /**
+     * Check if class could be instantiated: not interface, not abstract and not module.
+     *
+     * @return true for concrete class
+     */
+    public boolean isConcrete() {
+        return (accessFlags & (ACC_INTERFACE | ACC_ABSTRACT | ACC_MODULE)) == 0;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
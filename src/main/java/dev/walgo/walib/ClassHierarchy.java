@@ -0,0 +1,386 @@
+package dev.walgo.walib;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Class hierarchy, built from class file headers (see {@link ClassFileInfo}), without class
+ * loading.
+ *
+ * <p>
+ * Reverse indexes (type -> direct subtypes, annotation -> classes) are built on first use, so
+ * repeated queries (e.g. {@link #findImplementations(Class, ClassLoader)} for different base types)
+ * don't pass all classes again.
+ *
+ * <p>
+ * Read headers are kept per classpath entry, so hierarchy of changed classpath could reuse headers
+ * of not changed entries (see {@link #getContainerClasses()}).
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+public final class ClassHierarchy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClassHierarchy.class);
+
+    private final Map<String, ClassFileInfo> classes;
+    /** Classpath entry -> resource name -> class header. */
+    private final Map<String, Map<String, ClassFileInfo>> containerClasses;
+    private volatile Map<String, List<String>> annotated;
+    /** Type -> direct subtypes (classes and interfaces of hierarchy). */
+    private volatile Map<String, List<String>> subtypes;
+    /** Super types, which are not in hierarchy (e.g. platform classes). */
+    private volatile List<String> externalTypes;
+
+    ClassHierarchy(Map<String, ClassFileInfo> classes, Map<String, Map<String, ClassFileInfo>> containerClasses) {
+        this.classes = classes;
+        this.containerClasses = containerClasses;
+    }
+
+    /**
+     * Read class headers of given class resources.
+     *
+     * <p>
+     * When resource exists in several classpath entries, first one is used (as class loader does).
+     * Every archive is opened once.
+     *
+     * @param index     resource index, used for find classpath entry of resource
+     * @param resources class resource names, e.g. "my/package/MyClass.class"
+     * @return class hierarchy
+     */
+    public static ClassHierarchy read(ResourceIndex index, Collection<String> resources) {
+        return read(index, resources, null, null, null);
+    }
+
+    /**
+     * Read class headers of given class resources. Headers of classpath entry are taken from known
+     * headers (e.g. of previous snapshot) or from persistent index (for not changed archives), only
+     * missing headers are read. Read headers are put to persistent index.
+     *
+     * @param index     resource index, used for find classpath entry of resource
+     * @param resources class resource names
+     * @param stored    persistent index, null - don't use it
+     * @param known     Map of classpath entry -> resource name -> class header, which are still
+     *                  valid, null - no known headers
+     * @param executor  executor for concurrent read of classpath entries, null - sequential read
+     * @return class hierarchy
+     */
+    static ClassHierarchy read(ResourceIndex index, Collection<String> resources, ClasspathIndex stored,
+            Map<String, Map<String, ClassFileInfo>> known, Executor executor) {
+        Map<String, List<String>> byContainer = new LinkedHashMap<>();
+        for (String resource : resources) {
+            List<String> containers = index.getContainers(resource);
+            if (!containers.isEmpty()) {
+                byContainer.computeIfAbsent(containers.get(0), it -> new ArrayList<>()).add(resource);
+            }
+        }
+        Map<String, Map<String, ClassFileInfo>> cached = new HashMap<>();
+        for (String container : byContainer.keySet()) {
+            Map<String, ClassFileInfo> infos = known == null ? null : known.get(container);
+            if (infos == null && stored != null) {
+                infos = stored.getClasses(container);
+            }
+            if (infos != null) {
+                cached.put(container, infos);
+            }
+        }
+        Map<String, Map<String, ClassFileInfo>> read = new LinkedHashMap<>();
+        if (executor == null || byContainer.size() <= 1) {
+            for (Map.Entry<String, List<String>> entry : byContainer.entrySet()) {
+                read.put(entry.getKey(), readContainer(entry.getKey(), entry.getValue(), cached.get(entry.getKey())));
+            }
+        } else {
+            Map<String, CompletableFuture<Map<String, ClassFileInfo>>> futures = new LinkedHashMap<>();
+            for (Map.Entry<String, List<String>> entry : byContainer.entrySet()) {
+                futures.put(entry.getKey(), CompletableFuture.supplyAsync(
+                        () -> readContainer(entry.getKey(), entry.getValue(), cached.get(entry.getKey())), executor));
+            }
+            for (Map.Entry<String, CompletableFuture<Map<String, ClassFileInfo>>> future : futures.entrySet()) {
+                read.put(future.getKey(), future.getValue().join());
+            }
+        }
+        Map<String, ClassFileInfo> classes = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, ClassFileInfo>> entry : read.entrySet()) {
+            if (stored != null) {
+                stored.putClasses(entry.getKey(), entry.getValue());
+            }
+            for (ClassFileInfo info : entry.getValue().values()) {
+                classes.putIfAbsent(info.getName(), info);
+            }
+        }
+        return new ClassHierarchy(classes, read);
+    }
+
+    /**
+     * Read class headers from classpath entry.
+     *
+     * @return Map of resource name -> class header
+     */
+    private static Map<String, ClassFileInfo> readContainer(
+            String container, List<String> resources, Map<String, ClassFileInfo> cached) {
+        Map<String, ClassFileInfo> result = new LinkedHashMap<>();
+        List<String> unread = resources;
+        if (cached != null) {
+            unread = new ArrayList<>();
+            for (String resource : resources) {
+                ClassFileInfo info = cached.get(resource);
+                if (info != null) {
+                    result.put(resource, info);
+                } else {
+                    unread.add(resource);
+                }
+            }
+            if (unread.isEmpty()) {
+                return result;
+            }
+        }
+        ArchiveContainer archive;
+        try {
+            archive = ArchiveContainer.open(container);
+        } catch (IOException ex) {
+            LOG.error("Error on read classes from [{}]: {}", container, ex.getMessage());
+            return result;
+        }
+        if (archive == null) {
+            Path dir = Path.of(container);
+            for (String resource : unread) {
+                try (InputStream in = Files.newInputStream(dir.resolve(resource))) {
+                    result.put(resource, ClassFileInfo.read(in));
+                } catch (IOException ex) {
+                    LOG.warn("Error on read class [{}] from [{}]: {}", resource, container, ex.getMessage());
+                }
+            }
+            return result;
+        }
+        PrecomputedIndex index = archive.getPrefix().isEmpty() ? PrecomputedIndex.read(archive.getArchive()) : null;
+        ZipDirectory zip = archive.getArchive();
+        for (String resource : unread) {
+            ClassFileInfo indexed = index == null ? null : index.getClass(resource);
+            if (indexed != null) {
+                result.put(resource, indexed);
+                continue;
+            }
+            int entry = archive.lookup(resource);
+            if (entry < 0 || zip.isDirectory(entry)) {
+                continue;
+            }
+            try {
+                result.put(resource, ClassFileInfo.read(zip.read(entry)));
+            } catch (IOException ex) {
+                LOG.warn("Error on read class [{}] from [{}]: {}", resource, container, ex.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets header of class.
+     *
+     * @param className class name
+     * @return class header or null, when class is not in hierarchy
+     */
+    public ClassFileInfo get(String className) {
+        return classes.get(className);
+    }
+
+    /**
+     * Gets read class headers by classpath entry.
+     *
+     * @return Map of classpath entry -> resource name -> class header
+     */
+    Map<String, Map<String, ClassFileInfo>> getContainerClasses() {
+        return Collections.unmodifiableMap(containerClasses);
+    }
+
+    /**
+     * Gets all classes from hierarchy.
+     *
+     * @return class headers
+     */
+    public Collection<ClassFileInfo> getClasses() {
+        return Collections.unmodifiableCollection(classes.values());
+    }
+
+    /**
+     * Find all classes from hierarchy, which are directly annotated by given annotation.
+     *
+     * <p>
+     * Reverse index (annotation -> classes) is built on first call.
+     *
+     * @param annotationName annotation class name
+     * @return names of annotated classes
+     */
+    public List<String> findAnnotated(String annotationName) {
+        Map<String, List<String>> index = annotated;
+        if (index == null) {
+            index = new HashMap<>();
+            for (ClassFileInfo info : classes.values()) {
+                for (String annotation : info.getAnnotations()) {
+                    index.computeIfAbsent(annotation, it -> new ArrayList<>()).add(info.getName());
+                }
+            }
+            annotated = index;
+        }
+        return Collections.unmodifiableList(index.getOrDefault(annotationName, Collections.emptyList()));
+    }
+
+    /**
+     * Find all classes from hierarchy, which are subtypes of given class (or given class itself).
+     *
+     * <p>
+     * Super types, which are not in hierarchy, are loaded (without initialization) by given class
+     * loader for check.
+     *
+     * @param baseClass    base class (interface)
+     * @param concreteOnly true - return only concrete classes (see {@link ClassFileInfo#isConcrete()})
+     * @param classLoader  class loader for super types, which are not in hierarchy
+     * @return names of found classes
+     */
+    public List<String> findSubtypes(Class<?> baseClass, boolean concreteOnly, ClassLoader classLoader) {
+        Map<String, Boolean> checked = new HashMap<>();
+        List<String> result = new ArrayList<>();
+        for (ClassFileInfo info : classes.values()) {
+            if ((!concreteOnly || info.isConcrete())
+                    && isSubtype(info.getName(), baseClass, classLoader, checked)) {
+                result.add(info.getName());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find all concrete classes from hierarchy, which are subtypes of given class (or given class
+     * itself).
+     *
+     * <p>
+     * Subtypes are collected by reverse index (type -> direct subtypes), so query time is
+     * proportional to count of found subtypes. When base class is not in hierarchy (e.g. platform
+     * interface), super types, which are not in hierarchy, are loaded (without initialization) by
+     * given class loader for check.
+     *
+     * @param baseClass   base class (interface)
+     * @param classLoader class loader for super types, which are not in hierarchy
+     * @return names of found classes
+     */
+    public List<String> findImplementations(Class<?> baseClass, ClassLoader classLoader) {
+        List<String> result = new ArrayList<>();
+        if (baseClass == Object.class) {
+            for (ClassFileInfo info : classes.values()) {
+                if (info.isConcrete()) {
+                    result.add(info.getName());
+                }
+            }
+            return result;
+        }
+        Map<String, List<String>> index = getSubtypes();
+        Set<String> visited = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        visited.add(baseClass.getName());
+        queue.add(baseClass.getName());
+        if (!classes.containsKey(baseClass.getName())) {
+            // only types outside of hierarchy can be super types of other types outside of it
+            for (String external : getExternalTypes()) {
+                if (visited.add(external) && isExternalSubtype(external, baseClass, classLoader)) {
+                    queue.add(external);
+                }
+            }
+        }
+        while (!queue.isEmpty()) {
+            String type = queue.poll();
+            ClassFileInfo info = classes.get(type);
+            if (info != null && info.isConcrete()) {
+                result.add(type);
+            }
+            for (String subtype : index.getOrDefault(type, Collections.emptyList())) {
+                if (visited.add(subtype)) {
+                    queue.add(subtype);
+                }
+            }
+        }
+        return result;
+    }
+
+    private Map<String, List<String>> getSubtypes() {
+        Map<String, List<String>> index = subtypes;
+        if (index == null) {
+            index = new HashMap<>();
+            for (ClassFileInfo info : classes.values()) {
+                if (info.getSuperName() != null) {
+                    index.computeIfAbsent(info.getSuperName(), it -> new ArrayList<>()).add(info.getName());
+                }
+                for (String type : info.getInterfaces()) {
+                    index.computeIfAbsent(type, it -> new ArrayList<>()).add(info.getName());
+                }
+            }
+            subtypes = index;
+        }
+        return index;
+    }
+
+    private List<String> getExternalTypes() {
+        List<String> result = externalTypes;
+        if (result == null) {
+            result = new ArrayList<>();
+            for (String type : getSubtypes().keySet()) {
+                if (!classes.containsKey(type) && !Object.class.getName().equals(type)) {
+                    result.add(type);
+                }
+            }
+            externalTypes = result;
+        }
+        return result;
+    }
+
+    private boolean isSubtype(
+            String className, Class<?> baseClass, ClassLoader classLoader, Map<String, Boolean> checked) {
+        if (className == null) {
+            return false;
+        }
+        if (baseClass == Object.class || className.equals(baseClass.getName())) {
+            return true;
+        }
+        Boolean known = checked.get(className);
+        if (known != null) {
+            return known;
+        }
+        // guard against broken (cyclic) hierarchy
+        checked.put(className, Boolean.FALSE);
+        boolean result;
+        ClassFileInfo info = classes.get(className);
+        if (info == null) {
+            result = isExternalSubtype(className, baseClass, classLoader);
+        } else {
+            result = isSubtype(info.getSuperName(), baseClass, classLoader, checked);
+            for (int i = 0; !result && i < info.getInterfaces().size(); i++) {
+                result = isSubtype(info.getInterfaces().get(i), baseClass, classLoader, checked);
+            }
+        }
+        checked.put(className, result);
+        return result;
+    }
+
+    private static boolean isExternalSubtype(String className, Class<?> baseClass, ClassLoader classLoader) {
+        try {
+            return baseClass.isAssignableFrom(Class.forName(className, false, classLoader));
+        } catch (Throwable ex) {
+            LOG.debug("Super type not found: {} - {}", className, ex.getMessage());
+            return false;
+        }
+    }
+}
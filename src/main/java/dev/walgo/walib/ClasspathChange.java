@@ -0,0 +1,65 @@
+package dev.walgo.walib;
+
+import java.util.List;
+
+/**
+ * Change of resource names of one classpath entry (see {@link ClasspathListener}).
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+public final class ClasspathChange {
+
+    private final long version;
+    private final String container;
+    private final List<String> added;
+    private final List<String> removed;
+
+    ClasspathChange(long version, String container, List<String> added, List<String> removed) {
+        this.version = version;
+        this.container = container;
+        this.added = added;
+        this.removed = removed;
+    }
+
+    /**
+     * Gets version of classpath snapshot, which contains this change.
+     *
+     * @return snapshot version (see {@link ClasspathSnapshot#getVersion()})
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets changed classpath entry.
+     *
+     * @return classpath entry (directory)
+     */
+    public String getContainer() {
+        return container;
+    }
+
+    /**
+     * Gets added resources.
+     *
+     * @return resource names (unmodifiable)
+     */
+    public List<String> getAdded() {
+        return added;
+    }
+
+    /**
+     * Gets removed resources.
+     *
+     * @return resource names (unmodifiable)
+     */
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    @Override
+    public String toString() {
+        return "ClasspathChange{version=" + version + ", container=" + container + ", added=" + added
+                + ", removed=" + removed + "}";
+    }
+}
@@ -0,0 +1,425 @@
+package dev.walgo.walib;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent (on-disk) index of classpath resources.
+ *
+ * <p>
+ * Index keeps result of {@link ResourceLoader#load(String)} for every archive classpath entry
+ * together with fingerprint (size and modification time) of every archive (outer archive for nested
+ * ones). Entry, which
+ * fingerprint was not changed, could be taken from index without scanning. Directories are never
+ * indexed, because their content can't be validated cheaply. Missing containers (e.g. dangling
+ * manifest Class-Path entries) are indexed as missing, entry is rescanned when they appear.
+ *
+ * <p>
+ * Optionally index keeps class headers (see {@link ClassFileInfo}) of archive classes, so class
+ * hierarchy of not changed archives is built without reading of class files.
+ *
+ * <p>
+ * File format (big-endian):
+ *
+ * <pre>
+ * int    magic
+ * int    format version
+ * int    group count
+ * group:  string top classpath entry, int container count
+ * container: string path, long size (-1 - missing), long modification time, int resource count,
+ *            string[] resources, int class count, class[] classes
+ * class:  string resource, string name, int access flags, string super name ("" - none),
+ *         int interface count, string[] interfaces, int annotation count, string[] annotations
+ * string: int byte length, UTF-8 bytes
+ * </pre>
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+final class ClasspathIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClasspathIndex.class);
+
+    private static final int MAGIC = 0x57434958; // WCIX
+    /** Format version, changed also when meaning of stored resource names is changed. */
+    private static final int VERSION = 3;
+    private static final long MISSING = -1;
+
+    private final Map<String, Group> groups;
+    private boolean classesChanged;
+
+    private ClasspathIndex(Map<String, Group> groups) {
+        this.groups = groups;
+    }
+
+    /**
+     * Create empty index.
+     *
+     * @return empty index
+     */
+    static ClasspathIndex empty() {
+        return new ClasspathIndex(new LinkedHashMap<>());
+    }
+
+    /**
+     * Gets resources of classpath entry, when all its containers were not changed since indexing.
+     *
+     * @param entry classpath entry
+     * @return load result (as {@link ResourceLoader#load(String)}) or null, when entry not indexed
+     *         or changed
+     */
+    Map<String, List<String>> get(String entry) {
+        Group group = groups.get(entry);
+        if (group == null) {
+            return null;
+        }
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (Container container : group.containers) {
+            if (!container.isValid()) {
+                LOG.debug("Index: container [{}] changed", container.path);
+                return null;
+            }
+            result.put(container.path, container.resources);
+        }
+        return result;
+    }
+
+    /**
+     * Record attributes of classpath entry file (outer archive for nested one). Attributes should be
+     * recorded before entry scan, so entry, changed during scan, is rescanned next time.
+     *
+     * @param location classpath entry
+     * @param stamps   Map of file -> attributes, null attributes for directory
+     */
+    static void stamp(String location, Map<File, Stamp> stamps) {
+        File file = ArchiveContainer.getFile(location);
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException ex) {
+            stamps.put(file, new Stamp(MISSING, MISSING));
+            return;
+        }
+        if (attrs.isRegularFile()) {
+            stamps.put(file, new Stamp(attrs.size(), attrs.lastModifiedTime().toMillis()));
+        }
+    }
+
+    /**
+     * Put load result of classpath entry to index. Result with directories (or containers without
+     * recorded attributes) is ignored, missing containers are stored as missing.
+     *
+     * @param entry     classpath entry
+     * @param resources load result (as {@link ResourceLoader#load(String)})
+     * @param stamps    attributes of container files, recorded before scan (see
+     *                  {@link #stamp(String, Map)})
+     * @return true, when index was changed (entry was added, replaced or removed)
+     */
+    boolean put(String entry, Map<String, List<String>> resources, Map<File, Stamp> stamps) {
+        List<Container> containers = new ArrayList<>(resources.size());
+        for (Map.Entry<String, List<String>> item : resources.entrySet()) {
+            Stamp stamp = stamps.get(ArchiveContainer.getFile(item.getKey()));
+            if (stamp == null) {
+                return groups.remove(entry) != null;
+            }
+            containers.add(new Container(item.getKey(), stamp.size, stamp.modified, item.getValue()));
+        }
+        groups.put(entry, new Group(containers));
+        return true;
+    }
+
+    /**
+     * Gets stored class headers of container, when container was not changed since indexing.
+     *
+     * @param path container path
+     * @return map of resource name -> class header, or null when container not indexed, changed or
+     *         has no stored headers
+     */
+    Map<String, ClassFileInfo> getClasses(String path) {
+        Container container = findContainer(path);
+        return container == null || !container.isValid() ? null : container.classes;
+    }
+
+    /**
+     * Store class headers of indexed container. Headers of not indexed or changed containers are
+     * ignored.
+     *
+     * @param path    container path
+     * @param classes map of resource name -> class header
+     */
+    void putClasses(String path, Map<String, ClassFileInfo> classes) {
+        Container container = findContainer(path);
+        if (container == null || !container.isValid()
+                || container.classes != null && container.classes.keySet().containsAll(classes.keySet())) {
+            return;
+        }
+        Map<String, ClassFileInfo> merged = new LinkedHashMap<>();
+        if (container.classes != null) {
+            merged.putAll(container.classes);
+        }
+        merged.putAll(classes);
+        container.classes = merged;
+        classesChanged = true;
+    }
+
+    /**
+     * Check if class headers were added after read of index.
+     *
+     * @return true, when index should be written
+     */
+    boolean isClassesChanged() {
+        return classesChanged;
+    }
+
+    private Container findContainer(String path) {
+        for (Group group : groups.values()) {
+            for (Container container : group.containers) {
+                if (container.path.equals(path)) {
+                    return container;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove from index all classpath entries, which are not in given list.
+     *
+     * @param entries actual classpath entries
+     * @return true, when some entries were removed
+     */
+    boolean retain(Collection<String> entries) {
+        return groups.keySet().retainAll(entries);
+    }
+
+    /**
+     * Gets count of indexed classpath entries.
+     *
+     * @return count of entries
+     */
+    int size() {
+        return groups.size();
+    }
+
+    /**
+     * Read index from file. File is memory-mapped during read.
+     *
+     * @param file index file
+     * @return read index, or empty index when file not exists or broken
+     */
+    static ClasspathIndex read(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return empty();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                LOG.warn("Index [{}] has unsupported format, ignored", file);
+                return empty();
+            }
+            int groupCount = buffer.getInt();
+            Map<String, Group> groups = new LinkedHashMap<>(groupCount * 2);
+            for (int i = 0; i < groupCount; i++) {
+                String entry = readString(buffer);
+                int containerCount = buffer.getInt();
+                List<Container> containers = new ArrayList<>(containerCount);
+                for (int j = 0; j < containerCount; j++) {
+                    String path = readString(buffer);
+                    long size = buffer.getLong();
+                    long modified = buffer.getLong();
+                    int resourceCount = buffer.getInt();
+                    List<String> resources = new ArrayList<>(resourceCount);
+                    for (int k = 0; k < resourceCount; k++) {
+                        resources.add(readString(buffer));
+                    }
+                    Container container = new Container(path, size, modified, resources);
+                    container.classes = readClasses(buffer);
+                    containers.add(container);
+                }
+                groups.put(entry, new Group(containers));
+            }
+            LOG.debug("Index [{}] read, [{}] entries", file, groups.size());
+            return new ClasspathIndex(groups);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException ex) {
+            LOG.warn("Error on read index [{}]: {}", file, ex.getMessage());
+            return empty();
+        }
+    }
+
+    /**
+     * Write index to file. File is replaced atomically, when file system supports it.
+     *
+     * @param file index file
+     */
+    void write(Path file) {
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+            Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp);
+                    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out))) {
+                data.writeInt(MAGIC);
+                data.writeInt(VERSION);
+                data.writeInt(groups.size());
+                for (Map.Entry<String, Group> group : groups.entrySet()) {
+                    writeString(data, group.getKey());
+                    data.writeInt(group.getValue().containers.size());
+                    for (Container container : group.getValue().containers) {
+                        writeString(data, container.path);
+                        data.writeLong(container.size);
+                        data.writeLong(container.modified);
+                        data.writeInt(container.resources.size());
+                        for (String resource : container.resources) {
+                            writeString(data, resource);
+                        }
+                        writeClasses(data, container.classes);
+                    }
+                }
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            LOG.debug("Index [{}] written, [{}] entries", file, groups.size());
+        } catch (IOException ex) {
+            LOG.warn("Error on write index [{}]: {}", file, ex.getMessage());
+        }
+    }
+
+    private static Map<String, ClassFileInfo> readClasses(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count == 0) {
+            return null;
+        }
+        Map<String, ClassFileInfo> result = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String resource = readString(buffer);
+            String name = readString(buffer);
+            int accessFlags = buffer.getInt();
+            String superName = readString(buffer);
+            List<String> interfaces = readStrings(buffer);
+            List<String> annotations = readStrings(buffer);
+            result.put(resource, new ClassFileInfo(
+                    name, accessFlags, superName.isEmpty() ? null : superName, interfaces, annotations));
+        }
+        return result;
+    }
+
+    private static void writeClasses(DataOutputStream out, Map<String, ClassFileInfo> classes) throws IOException {
+        if (classes == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(classes.size());
+        for (Map.Entry<String, ClassFileInfo> entry : classes.entrySet()) {
+            ClassFileInfo info = entry.getValue();
+            writeString(out, entry.getKey());
+            writeString(out, info.getName());
+            out.writeInt(info.getAccessFlags());
+            writeString(out, info.getSuperName() == null ? "" : info.getSuperName());
+            writeStrings(out, info.getInterfaces());
+            writeStrings(out, info.getAnnotations());
+        }
+    }
+
+    private static List<String> readStrings(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalArgumentException("Wrong list size: " + count);
+        }
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(readString(buffer));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Wrong string length: " + length);
+        }
+        String result = StandardCharsets.UTF_8.decode(buffer.slice().limit(length)).toString();
+        buffer.position(buffer.position() + length);
+        return result;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Size and modification time of container file, recorded before scan. */
+    static final class Stamp {
+        private final long size;
+        private final long modified;
+
+        private Stamp(long size, long modified) {
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+
+    private static final class Group {
+        private final List<Container> containers;
+
+        private Group(List<Container> containers) {
+            this.containers = containers;
+        }
+    }
+
+    private static final class Container {
+        private final String path;
+        private final long size;
+        private final long modified;
+        private final List<String> resources;
+        /** Resource name -> class header, null - not stored. */
+        private Map<String, ClassFileInfo> classes;
+
+        private Container(String path, long size, long modified, List<String> resources) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.resources = resources;
+        }
+
+        private boolean isValid() {
+            File file = ArchiveContainer.getFile(path);
+            if (size == MISSING) {
+                return !file.exists();
+            }
+            return file.isFile() && file.length() == size && file.lastModified() == modified;
+        }
+    }
+}
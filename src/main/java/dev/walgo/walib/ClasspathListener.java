@@ -0,0 +1,18 @@
+package dev.walgo.walib;
+
+/**
+ * Listener of classpath changes, detected by watching of classpath directories (see
+ * {@link ResourceLoader#setWatching(boolean)}).
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+public interface ClasspathListener {
+
+    /**
+     * Called after new classpath snapshot with changed resources is published. Called from watcher
+     * thread, so listener should not block.
+     *
+     * @param change change of one classpath entry
+     */
+    void changed(ClasspathChange change);
+}
@@ -0,0 +1,376 @@
+package dev.walgo.walib;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable result of classpath scan (see {@link ResourceLoader#loadFromClasspath()}).
+ *
+ * <p>
+ * Snapshot is published atomically, every new snapshot gets next version number. Derived data
+ * (resource index, class hierarchy, service index, content reader) is built on demand once per snapshot.
+ * Class hierarchy is read outside of snapshot lock, concurrent callers wait for the same read.
+ * Snapshot with changed resources (see {@link ResourceLoader#setWatching(boolean)}) reuses class
+ * headers of not changed classpath entries.
+ *
+ * <p>
+ * Fingerprint covers size and modification time of every JAR/ZIP entry and modification time of
+ * every subdirectory of directory entries (directory is changed, when file is added or removed),
+ * so {@link ResourceLoader#refreshIfChanged()} detects changes of resource names without full
+ * rescan. Only archive attributes are read at scan time. Directory trees are walked only by
+ * {@link ResourceLoader#refreshIfChanged()}: on first check directories are unchanged, when no
+ * subdirectory was modified since scan start, the walked fingerprint is kept for next checks.
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+public final class ClasspathSnapshot {
+
+    private final long version;
+    private final String classPath;
+    private final String loaderPath;
+    /** Scan start time, millis. */
+    private final long scanTime;
+    /** Fingerprint of entries attributes, without directory content. */
+    private final long entriesFingerprint;
+    /** Fingerprint of directory trees, null - not calculated yet. */
+    private volatile Long directoriesFingerprint;
+    private final Map<String, List<String>> resources;
+    private final Map<String, Duration> timings;
+    private volatile ResourceIndex index;
+    private volatile CompletableFuture<ClassHierarchy> classHierarchy;
+    /** Class headers of not changed classpath entries of previous snapshot, null - none. */
+    private volatile Map<String, Map<String, ClassFileInfo>> knownClasses;
+    /** Package prefix -> hierarchy of package classes. */
+    private final Map<String, CompletableFuture<ClassHierarchy>> packageHierarchies = new ConcurrentHashMap<>();
+    private volatile ResourceContent content;
+    private volatile ServiceIndex serviceIndex;
+
+    ClasspathSnapshot(long version, String classPath, String loaderPath, long scanTime, long entriesFingerprint,
+            Map<String, List<String>> resources, Map<String, Duration> timings) {
+        this.version = version;
+        this.classPath = classPath;
+        this.loaderPath = loaderPath;
+        this.scanTime = scanTime;
+        this.entriesFingerprint = entriesFingerprint;
+        this.resources = resources;
+        this.timings = timings;
+    }
+
+    /**
+     * Gets snapshot version. Version is incremented on every classpath scan.
+     *
+     * @return version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets resources.
+     *
+     * @return Map of classpath entry -> resource list (unmodifiable)
+     */
+    public Map<String, List<String>> getResources() {
+        return resources;
+    }
+
+    /**
+     * Gets time, spent for load every classpath entry.
+     *
+     * @return Map of classpath entry -> load time, in classpath order
+     */
+    public Map<String, Duration> getEntryTimings() {
+        return timings;
+    }
+
+    /**
+     * Gets sorted index of snapshot resources.
+     *
+     * @return resource index
+     */
+    public ResourceIndex getIndex() {
+        ResourceIndex result = index;
+        if (result == null) {
+            synchronized (this) {
+                result = index;
+                if (result == null) {
+                    result = ResourceIndex.of(resources);
+                    index = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets hierarchy of all classes of snapshot.
+     *
+     * @return class hierarchy
+     */
+    public ClassHierarchy getClassHierarchy() {
+        CompletableFuture<ClassHierarchy> future = classHierarchy;
+        if (future == null) {
+            CompletableFuture<ClassHierarchy> created = new CompletableFuture<>();
+            synchronized (this) {
+                future = classHierarchy;
+                if (future == null) {
+                    classHierarchy = created;
+                    future = created;
+                }
+            }
+            if (future == created) {
+                try {
+                    created.complete(readClassHierarchy(getIndex(), knownClasses));
+                    knownClasses = null;
+                } catch (RuntimeException | Error ex) {
+                    synchronized (this) {
+                        classHierarchy = null;
+                    }
+                    created.completeExceptionally(ex);
+                    throw ex;
+                }
+            }
+        }
+        return future.join();
+    }
+
+    /**
+     * Gets hierarchy of classes of package and its subpackages. Only classes of package are read,
+     * hierarchy is kept while snapshot is alive.
+     *
+     * @param basePackage package name, e.g. "my.package"
+     * @return class hierarchy of package
+     */
+    ClassHierarchy getClassHierarchy(String basePackage) {
+        CompletableFuture<ClassHierarchy> created = new CompletableFuture<>();
+        CompletableFuture<ClassHierarchy> future = packageHierarchies.putIfAbsent(basePackage, created);
+        if (future == null) {
+            try {
+                ResourceIndex resourceIndex = getIndex();
+                created.complete(ClassHierarchy.read(resourceIndex,
+                        resourceIndex.find(ResourceUtils.classGlob(basePackage)), null, knownClasses,
+                        ResourceLoader.getExecutor()));
+            } catch (RuntimeException | Error ex) {
+                packageHierarchies.remove(basePackage, created);
+                created.completeExceptionally(ex);
+                throw ex;
+            }
+            future = created;
+        }
+        return future.join();
+    }
+
+    /**
+     * Check if hierarchy of all classes is read already.
+     *
+     * @return true, when {@link #getClassHierarchy()} returns without reading
+     */
+    boolean isClassHierarchyRead() {
+        CompletableFuture<ClassHierarchy> future = classHierarchy;
+        return future != null && future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    /**
+     * Read class hierarchy. Classpath entries are read concurrently, when executor is set (see
+     * {@link ResourceLoader#setExecutor(java.util.concurrent.Executor)}). When persistent index is
+     * used (see {@link ResourceLoader#setIndexFile(Path)}), class headers of not changed archives are
+     * taken from it, headers of other archives are saved to it.
+     */
+    private static ClassHierarchy readClassHierarchy(
+            ResourceIndex resourceIndex, Map<String, Map<String, ClassFileInfo>> known) {
+        List<String> classes = resourceIndex.find(ResourceUtils.CLASS_GLOB);
+        Path indexFile = ResourceLoader.getIndexFile();
+        if (indexFile == null) {
+            return ClassHierarchy.read(resourceIndex, classes, null, known, ResourceLoader.getExecutor());
+        }
+        ClasspathIndex stored = ClasspathIndex.read(indexFile);
+        ClassHierarchy result = ClassHierarchy.read(resourceIndex, classes, stored, known,
+                ResourceLoader.getExecutor());
+        if (stored.isClassesChanged()) {
+            stored.write(indexFile);
+        }
+        return result;
+    }
+
+    /**
+     * Gets content reader for snapshot resources. Opened archives are cached while snapshot is
+     * alive.
+     *
+     * @return content reader
+     */
+    public ResourceContent getContent() {
+        ResourceContent result = content;
+        if (result == null) {
+            synchronized (this) {
+                result = content;
+                if (result == null) {
+                    result = new ResourceContent();
+                    content = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets index of service providers, declared in service files of snapshot resources.
+     *
+     * @return service index
+     */
+    public ServiceIndex getServiceIndex() {
+        ServiceIndex result = serviceIndex;
+        if (result == null) {
+            ResourceIndex resourceIndex = getIndex();
+            ResourceContent resourceContent = getContent();
+            synchronized (this) {
+                result = serviceIndex;
+                if (result == null) {
+                    result = ServiceIndex.build(resourceIndex, resourceContent, ResourceLoader.getExecutor());
+                    serviceIndex = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check if snapshot is made for given class path.
+     *
+     * @param classPath  system class path
+     * @param loaderPath Spring class path
+     * @return true, when class paths are the same
+     */
+    boolean matches(String classPath, String loaderPath) {
+        return Objects.equals(this.classPath, classPath) && Objects.equals(this.loaderPath, loaderPath);
+    }
+
+    /**
+     * Create next snapshot of the same class path with changed resources (e.g. by directory
+     * watcher). Directory content is not fingerprinted, timings are kept. Class headers of not
+     * changed classpath entries are passed to new snapshot.
+     *
+     * @param version   new version
+     * @param resources changed resources
+     * @param scanTime  time, when changes were read, millis
+     * @param changed   changed classpath entries
+     * @return new snapshot
+     */
+    ClasspathSnapshot withResources(long version, Map<String, List<String>> resources, long scanTime,
+            Collection<String> changed) {
+        ClasspathSnapshot result = new ClasspathSnapshot(version, classPath, loaderPath, scanTime,
+                entriesFingerprint, resources, timings);
+        Map<String, Map<String, ClassFileInfo>> known = isClassHierarchyRead()
+                ? classHierarchy.join().getContainerClasses()
+                : knownClasses;
+        if (known != null) {
+            Map<String, Map<String, ClassFileInfo>> unchanged = new HashMap<>(known);
+            unchanged.keySet().removeAll(changed);
+            result.knownClasses = unchanged;
+        }
+        return result;
+    }
+
+    /**
+     * Check if classpath entries were changed since scan. Directory trees are walked.
+     *
+     * @param entries  classpath entries
+     * @param maxDepth maximum depth of directory walk
+     * @return true, when entries were changed
+     */
+    boolean isChanged(List<String> entries, int maxDepth) {
+        if (entriesFingerprint(entries) != entriesFingerprint) {
+            return true;
+        }
+        // hash, latest modification time
+        long[] directories = {17, Long.MIN_VALUE};
+        for (String entry : entries) {
+            Path path = ArchiveContainer.getFile(entry).toPath();
+            if (Files.isDirectory(path)) {
+                directories[0] = directories[0] * 31 + entry.hashCode();
+                walkDirectory(path, maxDepth, directories);
+            }
+        }
+        Long known = directoriesFingerprint;
+        if (known == null) {
+            // file system time can be coarse (up to seconds), so scan start is truncated
+            if (directories[1] >= scanTime - scanTime % 1000) {
+                return true;
+            }
+            directoriesFingerprint = directories[0];
+            return false;
+        }
+        return known != directories[0];
+    }
+
+    /**
+     * Calculate fingerprint of classpath entries attributes: size and modification time of files,
+     * existence of directories (without content).
+     *
+     * @param entries classpath entries
+     * @return fingerprint
+     */
+    static long entriesFingerprint(List<String> entries) {
+        long result = 17;
+        for (String entry : entries) {
+            result = result * 31 + entry.hashCode();
+            Path path = ArchiveContainer.getFile(entry).toPath();
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (IOException ex) {
+                // missing entry
+                result = result * 31 - 1;
+                continue;
+            }
+            if (attrs.isDirectory()) {
+                result = result * 31 + 1;
+            } else {
+                result = result * 31 + attrs.size();
+                result = result * 31 + attrs.lastModifiedTime().toMillis();
+            }
+        }
+        return result;
+    }
+
+    /** Add modification times of directory tree to fingerprint {hash, latest modification time}. */
+    private static void walkDirectory(Path dir, int maxDepth, long[] result) {
+        try {
+            Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), maxDepth,
+                    new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path subDir, BasicFileAttributes attrs) {
+                            long modified = attrs.lastModifiedTime().toMillis();
+                            result[0] = result[0] * 31 + modified;
+                            result[1] = Math.max(result[1], modified);
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+        } catch (IOException ex) {
+            result[0] = result[0] * 31 - 1;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package dev.walgo.walib;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watcher of classpath directories: every directory of tree is registered in {@link WatchService},
+ * created and deleted files are applied to classpath snapshot as deltas (see
+ * {@link ResourceLoader#setWatching(boolean)}).
+ *
+ * <p>
+ * Events are collected in batches (events, which come within {@link #BATCH_DELAY_MS} of each
+ * other). Changed names are checked against file system state when batch is applied, so event order
+ * doesn't matter. On event overflow the whole directory is rescanned.
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+final class ClasspathWatcher implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClasspathWatcher.class);
+    /** Time to wait for next event of batch. */
+    private static final long BATCH_DELAY_MS = 50;
+    /** Changed name, which means "rescan whole directory". */
+    private static final String RESCAN = "";
+
+    private final WatchService service;
+    private final int maxDepth;
+    private final Map<WatchKey, WatchedDir> keys = new ConcurrentHashMap<>();
+    private final Thread thread;
+
+    private ClasspathWatcher(WatchService service, int maxDepth) {
+        this.service = service;
+        this.maxDepth = maxDepth;
+        this.thread = new Thread(this::run, "walib-classpath-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Start watching of directories.
+     *
+     * @param containers classpath entries, only directories are watched
+     * @param maxDepth   maximum depth of directory tree
+     * @return started watcher
+     * @throws IOException when watch service can't be created
+     */
+    static ClasspathWatcher start(Collection<String> containers, int maxDepth) throws IOException {
+        ClasspathWatcher watcher = new ClasspathWatcher(FileSystems.getDefault().newWatchService(), maxDepth);
+        for (String container : containers) {
+            if (!ArchiveContainer.isNested(container) && Files.isDirectory(Path.of(container))) {
+                watcher.register(container, Path.of(container), "");
+            }
+        }
+        LOG.debug("Watch [{}] directories", watcher.keys.size());
+        watcher.thread.start();
+        return watcher;
+    }
+
+    /**
+     * Stop watching.
+     */
+    @Override
+    public void close() {
+        try {
+            service.close();
+        } catch (IOException ex) {
+            LOG.warn("Error on close watch service: {}", ex.getMessage());
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                // container -> changed names
+                Map<String, Set<String>> changed = new LinkedHashMap<>();
+                while (key != null) {
+                    collect(key, changed);
+                    key = service.poll(BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+                }
+                Map<String, UnaryOperator<List<String>>> updates = new LinkedHashMap<>();
+                for (Map.Entry<String, Set<String>> entry : changed.entrySet()) {
+                    String container = entry.getKey();
+                    Set<String> names = entry.getValue();
+                    updates.put(container, current -> update(container, current, names));
+                }
+                ResourceLoader.applyChanges(updates);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ex) {
+            // stopped
+        }
+        LOG.debug("Classpath watcher stopped");
+    }
+
+    private void collect(WatchKey key, Map<String, Set<String>> changed) {
+        WatchedDir dir = keys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (dir == null) {
+                continue;
+            }
+            Set<String> names = changed.computeIfAbsent(dir.container, it -> new HashSet<>());
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                LOG.debug("Events overflow for [{}], rescan [{}]", dir.path, dir.container);
+                names.add(RESCAN);
+                continue;
+            }
+            Path child = dir.path.resolve((Path) event.context());
+            String name = dir.prefix + child.getFileName();
+            names.add(name);
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                register(dir.container, child, name + "/");
+            }
+        }
+        if (!key.reset()) {
+            // directory is deleted
+            keys.remove(key);
+        }
+    }
+
+    /**
+     * Apply changed names to resource list of directory.
+     *
+     * @param container directory
+     * @param current   current resource names
+     * @param changed   changed names (created or deleted files or directories)
+     * @return new resource names
+     */
+    private List<String> update(String container, List<String> current, Set<String> changed) {
+        Path root = Path.of(container);
+        if (changed.contains(RESCAN)) {
+            register(container, root, "");
+            return DirectoryScanner.scan(root, maxDepth, null);
+        }
+        List<String> result = new ArrayList<>(current.size());
+        for (String name : current) {
+            if (!isChanged(name, changed)) {
+                result.add(name);
+            }
+        }
+        for (String name : changed) {
+            int depth = getDepth(name);
+            // files of changed directory are added with it
+            if (depth > maxDepth || isParentChanged(name, changed)) {
+                continue;
+            }
+            Path path = root.resolve(name);
+            if (Files.isRegularFile(path)) {
+                result.add(name);
+            } else if (Files.isDirectory(path) && depth < maxDepth) {
+                for (String file : DirectoryScanner.scan(path, maxDepth - depth, null)) {
+                    result.add(name + "/" + file);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Check if name or one of its parent directories is changed. */
+    private static boolean isChanged(String name, Set<String> changed) {
+        return changed.contains(name) || isParentChanged(name, changed);
+    }
+
+    private static boolean isParentChanged(String name, Set<String> changed) {
+        for (int pos = name.indexOf('/'); pos > 0; pos = name.indexOf('/', pos + 1)) {
+            if (changed.contains(name.substring(0, pos))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Depth of resource in directory tree: 1 - file of root directory. */
+    private static int getDepth(String name) {
+        int result = 1;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) == '/') {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /** Register directory tree. */
+    private void register(String container, Path dir, String prefix) {
+        int depth = prefix.isEmpty() ? 0 : getDepth(prefix.substring(0, prefix.length() - 1));
+        if (depth >= maxDepth) {
+            return;
+        }
+        try {
+            Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), maxDepth - depth,
+                    new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path subDir, BasicFileAttributes attrs)
+                                throws IOException {
+                            StringBuilder name = new StringBuilder(prefix);
+                            for (Path part : dir.relativize(subDir)) {
+                                if (!part.toString().isEmpty()) {
+                                    name.append(part).append('/');
+                                }
+                            }
+                            WatchKey key = subDir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                                    StandardWatchEventKinds.ENTRY_DELETE);
+                            keys.put(key, new WatchedDir(container, subDir, name.toString()));
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                            if (!(exc instanceof FileSystemLoopException)) {
+                                LOG.warn("Can't watch [{}]: {}", file, exc.getMessage());
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+        } catch (ClosedWatchServiceException ex) {
+            // stopped
+        } catch (IOException ex) {
+            LOG.warn("Can't watch directory [{}]: {}", dir, ex.getMessage());
+        }
+    }
+
+    private static final class WatchedDir {
+        private final String container;
+        private final Path path;
+        /** Resource name prefix of directory files ("" for root directory). */
+        private final String prefix;
+
+        private WatchedDir(String container, Path path, String prefix) {
+            this.container = container;
+            this.path = path;
+            this.prefix = prefix;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package dev.walgo.walib;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Immutable memory-compact list of resource names.
+ *
+ * <p>
+ * Directory part of name (up to last "/") is stored once per distinct directory, file part is
+ * packed to shared UTF-8 byte array. Name strings are created on every {@link #get(int)} call.
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+final class CompactStringList extends AbstractList<String> implements RandomAccess {
+
+    private static final CompactStringList EMPTY = new CompactStringList(new String[0], new int[0], new int[1],
+            new byte[0]);
+
+    private final String[] dirs;
+    private final int[] dirIndex;
+    private final int[] offsets;
+    private final byte[] names;
+
+    private CompactStringList(String[] dirs, int[] dirIndex, int[] offsets, byte[] names) {
+        this.dirs = dirs;
+        this.dirIndex = dirIndex;
+        this.offsets = offsets;
+        this.names = names;
+    }
+
+    /**
+     * Create compact copy of list.
+     *
+     * @param items resource names
+     * @return compact list
+     */
+    static CompactStringList of(List<String> items) {
+        if (items instanceof CompactStringList) {
+            return (CompactStringList) items;
+        }
+        if (items.isEmpty()) {
+            return EMPTY;
+        }
+        int size = items.size();
+        Map<String, Integer> dirIds = new HashMap<>();
+        List<String> dirList = new ArrayList<>();
+        int[] dirIndex = new int[size];
+        int[] offsets = new int[size + 1];
+        byte[] names = new byte[size * 16];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            String item = items.get(i);
+            int pos = item.lastIndexOf('/') + 1;
+            String dir = item.substring(0, pos);
+            Integer id = dirIds.get(dir);
+            if (id == null) {
+                id = dirList.size();
+                dirIds.put(dir, id);
+                dirList.add(dir);
+            }
+            dirIndex[i] = id;
+            byte[] name = item.substring(pos).getBytes(StandardCharsets.UTF_8);
+            if (length + name.length > names.length) {
+                names = Arrays.copyOf(names, Math.max(names.length * 2, length + name.length));
+            }
+            System.arraycopy(name, 0, names, length, name.length);
+            length += name.length;
+            offsets[i + 1] = length;
+        }
+        return new CompactStringList(dirList.toArray(new String[0]), dirIndex, offsets, Arrays.copyOf(names, length));
+    }
+
+    @Override
+    public String get(int index) {
+        int start = offsets[index];
+        String dir = dirs[dirIndex[index]];
+        String name = new String(names, start, offsets[index + 1] - start, StandardCharsets.UTF_8);
+        return dir.isEmpty() ? name : dir.concat(name);
+    }
+
+    @Override
+    public int size() {
+        return dirIndex.length;
+    }
+}
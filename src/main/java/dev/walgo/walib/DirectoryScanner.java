@@ -0,0 +1,353 @@
+package dev.walgo.walib;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Directory walker for resource names.
+ *
+ * <p>
+ * Symbolic links are followed, link loops are detected and skipped. File attributes are read once
+ * per file. Resource names are relative to root directory, with "/" as separator.
+ *
+ * <p>
+ * Resource filter is applied while walking: not accepted files are not collected and
+ * subdirectories, rejected by {@link ResourceFilter#acceptDirectory(String)}, are not opened.
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+final class DirectoryScanner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DirectoryScanner.class);
+
+    private DirectoryScanner() {
+    }
+
+    /**
+     * Gets names of all files in directory tree.
+     *
+     * @param root     root directory
+     * @param maxDepth maximum depth of directory tree (1 - only files of root directory)
+     * @param pool     fork-join pool for parallel walk (every subdirectory is separate task), null -
+     *                 sequential walk
+     * @return resource names
+     */
+    static List<String> scan(Path root, int maxDepth, ForkJoinPool pool) {
+        return scan(root, maxDepth, pool, ResourceFilter.all());
+    }
+
+    /**
+     * Gets names of files in directory tree, accepted by filter.
+     *
+     * @param root     root directory
+     * @param maxDepth maximum depth of directory tree (1 - only files of root directory)
+     * @param pool     fork-join pool for parallel walk (every subdirectory is separate task), null -
+     *                 sequential walk
+     * @param filter   resource filter
+     * @return resource names
+     */
+    static List<String> scan(Path root, int maxDepth, ForkJoinPool pool, ResourceFilter filter) {
+        if (pool == null) {
+            return scanSequential(root, maxDepth, filter);
+        }
+        return pool.invoke(new DirectoryTask(root, "", 0, maxDepth, new Ancestor(fileKey(root, null), null), filter));
+    }
+
+    private static List<String> scanSequential(Path root, int maxDepth, ResourceFilter filter) {
+        List<String> result = new ArrayList<>();
+        Deque<String> prefixes = new ArrayDeque<>();
+        try {
+            Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), maxDepth,
+                    new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                            String prefix = prefixes.isEmpty() ? "" : prefixes.peek() + dir.getFileName() + '/';
+                            if (!prefix.isEmpty() && !filter.acceptDirectory(prefix)) {
+                                return FileVisitResult.SKIP_SUBTREE;
+                            }
+                            prefixes.push(prefix);
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                            if (attrs.isRegularFile()) {
+                                String name = prefixes.peek() + file.getFileName();
+                                if (filter.accept(name)) {
+                                    result.add(name);
+                                }
+                            } else if (!attrs.isDirectory()) {
+                                // directory here means max depth is reached
+                                LOG.info("Ignore [{}] because of unsupported type", file);
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                            logFailed(file, exc);
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                            prefixes.pop();
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+        } catch (IOException ex) {
+            LOG.error("Error on load content from directory: [{}]: {}", root, ex.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Lazy stream of names of all files in directory tree.
+     *
+     * @param root     root directory
+     * @param maxDepth maximum depth of directory tree (1 - only files of root directory)
+     * @param filter   resource filter
+     * @return stream of resource names, should be closed
+     */
+    static Stream<String> stream(Path root, int maxDepth, ResourceFilter filter) {
+        LazyWalker walker = new LazyWalker(root, maxDepth, filter);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(walker, Spliterator.ORDERED | Spliterator.NONNULL),
+                false).onClose(walker::close);
+    }
+
+    private static void logFailed(Path file, IOException exc) {
+        if (exc instanceof FileSystemLoopException) {
+            LOG.warn("Ignore [{}] because of symbolic link loop", file);
+        } else {
+            LOG.warn("Ignore [{}]: {}", file, exc.getMessage());
+        }
+    }
+
+    /** Unique directory key: file key, when supported by file system, or real path. */
+    private static Object fileKey(Path dir, BasicFileAttributes attrs) {
+        Object key = attrs == null ? null : attrs.fileKey();
+        if (key != null) {
+            return key;
+        }
+        try {
+            BasicFileAttributes dirAttrs = attrs == null ? Files.readAttributes(dir, BasicFileAttributes.class) : attrs;
+            key = dirAttrs.fileKey();
+            return key != null ? key : dir.toRealPath();
+        } catch (IOException ex) {
+            return dir.toAbsolutePath().normalize();
+        }
+    }
+
+    /** Directory scan task, every subdirectory is scanned by separate task. */
+    private static final class DirectoryTask extends RecursiveTask<List<String>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path dir;
+        private final String prefix;
+        private final int depth;
+        private final int maxDepth;
+        /** Keys of this directory and its parents, for loop detection. */
+        private final transient Ancestor ancestors;
+        private final transient ResourceFilter filter;
+
+        private DirectoryTask(Path dir, String prefix, int depth, int maxDepth, Ancestor ancestors,
+                ResourceFilter filter) {
+            this.dir = dir;
+            this.prefix = prefix;
+            this.depth = depth;
+            this.maxDepth = maxDepth;
+            this.ancestors = ancestors;
+            this.filter = filter;
+        }
+
+        @Override
+        protected List<String> compute() {
+            List<String> result = new ArrayList<>();
+            if (depth >= maxDepth) {
+                return result;
+            }
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path path : stream) {
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                    } catch (IOException ex) {
+                        logFailed(path, ex);
+                        continue;
+                    }
+                    String name = path.getFileName().toString();
+                    if (attrs.isRegularFile()) {
+                        if (filter.accept(prefix + name)) {
+                            result.add(prefix + name);
+                        }
+                    } else if (attrs.isDirectory()) {
+                        if (depth + 1 >= maxDepth || !filter.acceptDirectory(prefix + name + '/')) {
+                            continue;
+                        }
+                        Object key = fileKey(path, attrs);
+                        if (ancestors.contains(key)) {
+                            logFailed(path, new FileSystemLoopException(path.toString()));
+                            continue;
+                        }
+                        DirectoryTask task = new DirectoryTask(path, prefix + name + '/', depth + 1, maxDepth,
+                                new Ancestor(key, ancestors), filter);
+                        task.fork();
+                        subtasks.add(task);
+                    } else {
+                        LOG.info("Ignore [{}] because of unsupported type", path);
+                    }
+                }
+            } catch (IOException ex) {
+                logFailed(dir, ex);
+            }
+            for (DirectoryTask task : subtasks) {
+                result.addAll(task.join());
+            }
+            return result;
+        }
+    }
+
+    /** Immutable chain of directory keys from directory to root, shared by subdirectory tasks. */
+    private static final class Ancestor {
+        private final Object key;
+        private final Ancestor parent;
+
+        private Ancestor(Object key, Ancestor parent) {
+            this.key = key;
+            this.parent = parent;
+        }
+
+        private boolean contains(Object dirKey) {
+            for (Ancestor it = this; it != null; it = it.parent) {
+                if (it.key.equals(dirKey)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /** Lazy depth-first walker. Only open directories of current path are kept. */
+    private static final class LazyWalker implements Iterator<String> {
+
+        private final int maxDepth;
+        private final ResourceFilter filter;
+        private final Deque<Level> levels = new ArrayDeque<>();
+        private String next;
+
+        private LazyWalker(Path root, int maxDepth, ResourceFilter filter) {
+            this.maxDepth = maxDepth;
+            this.filter = filter;
+            open(root, "", fileKey(root, null));
+        }
+
+        private void open(Path dir, String prefix, Object key) {
+            try {
+                levels.push(new Level(Files.newDirectoryStream(dir), prefix, key));
+            } catch (IOException ex) {
+                logFailed(dir, ex);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !levels.isEmpty()) {
+                Level level = levels.peek();
+                if (!level.entries.hasNext()) {
+                    levels.pop().close();
+                    continue;
+                }
+                Path path = level.entries.next();
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (IOException ex) {
+                    logFailed(path, ex);
+                    continue;
+                }
+                String name = path.getFileName().toString();
+                if (attrs.isRegularFile()) {
+                    if (filter.accept(level.prefix + name)) {
+                        next = level.prefix + name;
+                    }
+                } else if (attrs.isDirectory()) {
+                    if (levels.size() >= maxDepth || !filter.acceptDirectory(level.prefix + name + '/')) {
+                        continue;
+                    }
+                    Object key = fileKey(path, attrs);
+                    if (levels.stream().anyMatch(it -> it.key.equals(key))) {
+                        logFailed(path, new FileSystemLoopException(path.toString()));
+                        continue;
+                    }
+                    open(path, level.prefix + name + '/', key);
+                } else {
+                    LOG.info("Ignore [{}] because of unsupported type", path);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String result = next;
+            next = null;
+            return result;
+        }
+
+        private void close() {
+            while (!levels.isEmpty()) {
+                levels.pop().close();
+            }
+        }
+    }
+
+    private static final class Level {
+        private final DirectoryStream<Path> stream;
+        private final Iterator<Path> entries;
+        private final String prefix;
+        private final Object key;
+
+        private Level(DirectoryStream<Path> stream, String prefix, Object key) {
+            this.stream = stream;
+            this.entries = stream.iterator();
+            this.prefix = prefix;
+            this.key = key;
+        }
+
+        private void close() {
+            try {
+                stream.close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+}
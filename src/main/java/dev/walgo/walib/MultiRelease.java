@@ -0,0 +1,228 @@
+package dev.walgo.walib;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Multi-release JAR view of archive (see {@link JarFile}): versioned entries
+ * ("META-INF/versions/N/name") are visible by logical name ("name") and shadow base entries.
+ *
+ * <p>
+ * Only versions from 9 to given release are used, other versioned entries are hidden. Archive is
+ * multi-release only when it has "Multi-Release: true" manifest attribute, otherwise versioned
+ * entries are plain resources.
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+final class MultiRelease {
+
+    /** Directory of versioned entries. */
+    static final String VERSIONS_DIR = "META-INF/versions/";
+    /** Release of running Java. */
+    static final int RUNTIME_RELEASE = Runtime.version().feature();
+    /** View of not multi-release archive. */
+    static final MultiRelease NONE = new MultiRelease(new BitSet(), new BitSet(), new int[0]);
+
+    private static final Attributes.Name MULTI_RELEASE = new Attributes.Name("Multi-Release");
+    private static final int BASE_RELEASE = 8;
+    private static final byte[] VERSIONS_BYTES = VERSIONS_DIR.getBytes(StandardCharsets.UTF_8);
+
+    private final BitSet hidden;
+    private final BitSet versioned;
+    private final int[] releases;
+
+    private MultiRelease(BitSet hidden, BitSet versioned, int[] releases) {
+        this.hidden = hidden;
+        this.versioned = versioned;
+        this.releases = releases;
+    }
+
+    /**
+     * Build multi-release view of archive.
+     *
+     * @param zip     archive
+     * @param release Java release (feature version)
+     * @return view or {@link #NONE}, when archive is not multi-release or has no versioned entries
+     * @throws IOException on manifest read error
+     */
+    static MultiRelease of(ZipDirectory zip, int release) throws IOException {
+        // manifest is read only for archives with versioned entries
+        boolean hasVersions = false;
+        for (int i = 0; i < zip.size() && !hasVersions; i++) {
+            hasVersions = zip.nameStartsWith(i, VERSIONS_BYTES);
+        }
+        if (!hasVersions || !isMultiRelease(readManifest(zip))) {
+            return NONE;
+        }
+        BitSet hidden = new BitSet(zip.size());
+        BitSet versioned = new BitSet(zip.size());
+        Set<Integer> releases = new TreeSet<>();
+        // logical name -> entry of best version
+        Map<String, Integer> best = new HashMap<>();
+        for (int i = 0; i < zip.size(); i++) {
+            if (zip.isDirectory(i) || !zip.nameStartsWith(i, VERSIONS_BYTES)) {
+                continue;
+            }
+            String name = zip.getName(i);
+            int version = getRelease(name);
+            if (version <= BASE_RELEASE || version > release) {
+                hidden.set(i);
+                continue;
+            }
+            releases.add(version);
+            String logical = getLogicalName(name);
+            Integer previous = best.get(logical);
+            if (previous == null || getRelease(zip.getName(previous)) < version) {
+                best.put(logical, i);
+                if (previous != null) {
+                    hidden.set(previous);
+                }
+            } else {
+                hidden.set(i);
+            }
+        }
+        for (int i = 0; i < zip.size(); i++) {
+            if (!zip.isDirectory(i) && !zip.nameStartsWith(i, VERSIONS_BYTES) && best.containsKey(zip.getName(i))) {
+                hidden.set(i);
+            }
+        }
+        for (int entry : best.values()) {
+            versioned.set(entry);
+        }
+        return new MultiRelease(hidden, versioned,
+                releases.stream().sorted((a, b) -> b - a).mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Resolve list of archive entry names to logical names, as {@link #of(ZipDirectory, int)} does
+     * (e.g. for names from precomputed index).
+     *
+     * @param names   entry names, in archive order
+     * @param release Java release (feature version)
+     * @return logical names, versioned names are placed instead of shadowed base names
+     */
+    static List<String> resolve(List<String> names, int release) {
+        Map<String, Integer> best = new HashMap<>();
+        for (String name : names) {
+            int version = getRelease(name);
+            if (version > BASE_RELEASE && version <= release) {
+                best.merge(getLogicalName(name), version, Math::max);
+            }
+        }
+        List<String> result = new ArrayList<>(names.size());
+        Set<String> added = new HashSet<>();
+        for (String name : names) {
+            if (!name.startsWith(VERSIONS_DIR)) {
+                if (added.add(name)) {
+                    result.add(name);
+                }
+                continue;
+            }
+            int version = getRelease(name);
+            String logical = getLogicalName(name);
+            if (version > BASE_RELEASE && best.get(logical) == version && added.add(logical)) {
+                result.add(logical);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check if JAR is multi-release.
+     *
+     * @param manifest JAR manifest, can be null
+     * @return true, when manifest has "Multi-Release: true"
+     */
+    static boolean isMultiRelease(Manifest manifest) {
+        return manifest != null && "true".equalsIgnoreCase(manifest.getMainAttributes().getValue(MULTI_RELEASE));
+    }
+
+    /**
+     * Check if entry is hidden: versioned entry for other release or base entry, shadowed by
+     * versioned one.
+     *
+     * @param entry entry index
+     * @return true for hidden entry
+     */
+    boolean isHidden(int entry) {
+        return hidden.get(entry);
+    }
+
+    /**
+     * Check if entry is versioned entry, visible by logical name.
+     *
+     * @param entry entry index
+     * @return true for visible versioned entry
+     */
+    boolean isVersioned(int entry) {
+        return versioned.get(entry);
+    }
+
+    /**
+     * Gets used releases.
+     *
+     * @return releases with visible versioned entries, from highest to lowest
+     */
+    int[] getReleases() {
+        return releases;
+    }
+
+    /**
+     * Gets release of versioned entry name.
+     *
+     * @param name entry name
+     * @return release or -1, when name is not versioned (or has wrong version)
+     */
+    static int getRelease(String name) {
+        if (!name.startsWith(VERSIONS_DIR)) {
+            return -1;
+        }
+        int end = name.indexOf('/', VERSIONS_DIR.length());
+        if (end <= VERSIONS_DIR.length() || end - VERSIONS_DIR.length() > 9) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = VERSIONS_DIR.length(); i < end; i++) {
+            char ch = name.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return -1;
+            }
+            result = result * 10 + (ch - '0');
+        }
+        return result;
+    }
+
+    /**
+     * Gets logical name of versioned entry name.
+     *
+     * @param name versioned entry name, e.g. "META-INF/versions/11/my/package/MyClass.class"
+     * @return logical name, e.g. "my/package/MyClass.class"
+     */
+    static String getLogicalName(String name) {
+        return name.substring(name.indexOf('/', VERSIONS_DIR.length()) + 1);
+    }
+
+    private static Manifest readManifest(ZipDirectory zip) throws IOException {
+        int entry = zip.find(JarFile.MANIFEST_NAME);
+        if (entry < 0) {
+            return null;
+        }
+        ByteBuffer content = zip.read(entry);
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        return new Manifest(new ByteArrayInputStream(bytes));
+    }
+}
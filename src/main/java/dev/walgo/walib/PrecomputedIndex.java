@@ -0,0 +1,313 @@
+package dev.walgo.walib;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Build-time resource index, stored in jar as {@value #LOCATION}.
+ *
+ * <p>
+ * Index contains names and CRC-32 of all jar resources and class headers (see
+ * {@link ClassFileInfo}). When index is present, {@link ResourceLoader#loadJar(String)} and
+ * {@link ClassHierarchy} use it instead of jar enumeration and class reading.
+ *
+ * <p>
+ * Index is generated by {@link #main(String[])} from compiled classes and resources directories,
+ * e.g. from Gradle task before jar packaging (see "resourceIndex" task in this library build
+ * script).
+ *
+ * <p>
+ * Format: UTF-8 text, first line is header, then one line per resource: name and CRC-32 of content
+ * (hex, empty for index itself), tab separated. Class resource line has additional tab separated
+ * fields: access flags (hex), super class, interfaces and annotations (comma separated).
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+public final class PrecomputedIndex {
+
+    /** Index location in jar. */
+    public static final String LOCATION = "META-INF/walib/index";
+
+    private static final Logger LOG = LoggerFactory.getLogger(PrecomputedIndex.class);
+    private static final String HEADER = "walib-index 2";
+    private static final long NO_CRC = -1;
+    private static final char FIELD_SEPARATOR = '\t';
+    private static final char LIST_SEPARATOR = ',';
+    private static final char LINE_SEPARATOR = '\n';
+
+    private final List<String> resources;
+    /** Resource name -> CRC-32 of content. */
+    private final Map<String, Long> crcs;
+    private final Map<String, ClassFileInfo> classes;
+
+    private PrecomputedIndex(List<String> resources, Map<String, Long> crcs, Map<String, ClassFileInfo> classes) {
+        this.resources = resources;
+        this.crcs = crcs;
+        this.classes = classes;
+    }
+
+    /**
+     * Gets names of all indexed resources.
+     *
+     * @return resource names
+     */
+    public List<String> getResources() {
+        return Collections.unmodifiableList(resources);
+    }
+
+    /**
+     * Gets class header by class resource name.
+     *
+     * @param resource class resource name, e.g. "my/package/MyClass.class"
+     * @return class header or null, when not indexed
+     */
+    public ClassFileInfo getClass(String resource) {
+        return classes.get(resource);
+    }
+
+    /**
+     * Build index from directories (e.g. compiled classes and resources).
+     *
+     * @param dirs directories, not existing are ignored
+     * @return built index
+     * @throws IOException on read error
+     */
+    public static PrecomputedIndex scan(List<Path> dirs) throws IOException {
+        List<String> resources = new ArrayList<>();
+        Map<String, Long> crcs = new LinkedHashMap<>();
+        Map<String, ClassFileInfo> classes = new LinkedHashMap<>();
+        resources.add(LOCATION);
+        for (Path dir : dirs) {
+            if (!Files.isDirectory(dir)) {
+                LOG.debug("Directory [{}] not found, ignored", dir);
+                continue;
+            }
+            List<Path> files;
+            try (Stream<Path> stream = Files.walk(dir)) {
+                files = stream.filter(Files::isRegularFile).sorted().toList();
+            }
+            for (Path file : files) {
+                String name = dir.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                if (name.equals(LOCATION)) {
+                    continue;
+                }
+                resources.add(name);
+                crcs.put(name, crc(file));
+                if (name.endsWith(ResourceUtils.CLASS_EXT)) {
+                    try (InputStream in = Files.newInputStream(file)) {
+                        classes.put(name, ClassFileInfo.read(in));
+                    } catch (IOException ex) {
+                        LOG.warn("Error on read class [{}]: {}", file, ex.getMessage());
+                    }
+                }
+            }
+        }
+        return new PrecomputedIndex(resources, crcs, classes);
+    }
+
+    private static long crc(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Read index.
+     *
+     * @param in index content
+     * @return read index
+     * @throws IOException on read error or wrong format
+     */
+    public static PrecomputedIndex read(InputStream in) throws IOException {
+        return read(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    private static PrecomputedIndex read(Reader in) throws IOException {
+        BufferedReader reader = new BufferedReader(in);
+        String header = reader.readLine();
+        if (!HEADER.equals(header)) {
+            throw new IOException("Unsupported index format: " + header);
+        }
+        List<String> resources = new ArrayList<>();
+        Map<String, Long> crcs = new LinkedHashMap<>();
+        Map<String, ClassFileInfo> classes = new LinkedHashMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = StringUtils.splitPreserveAllTokens(line, FIELD_SEPARATOR);
+            if (fields.length < 2) {
+                throw new IOException("Wrong index line: " + line);
+            }
+            resources.add(fields[0]);
+            try {
+                if (!fields[1].isEmpty()) {
+                    crcs.put(fields[0], Long.parseLong(fields[1], 16));
+                }
+                if (fields.length == 6) {
+                    String className = fields[0]
+                            .substring(0, fields[0].length() - ResourceUtils.CLASS_EXT.length())
+                            .replace('/', '.');
+                    ClassFileInfo info = new ClassFileInfo(className, Integer.parseInt(fields[2], 16),
+                            StringUtils.defaultIfEmpty(fields[3], null), split(fields[4]), split(fields[5]));
+                    classes.put(fields[0], info);
+                }
+            } catch (NumberFormatException ex) {
+                throw new IOException("Wrong index line: " + line, ex);
+            }
+        }
+        return new PrecomputedIndex(resources, crcs, classes);
+    }
+
+    /**
+     * Read index from archive. Index is checked against archive directory: count of indexed
+     * resources should be the same as count of archive files (manifest is not counted), every indexed
+     * resource should be found in archive with the same CRC-32, so archive, changed after indexing
+     * (e.g. signed, shaded or instrumented), is not described by stale index.
+     *
+     * @param zip archive
+     * @return read index or null, when archive has no index (or index is broken or doesn't match
+     *         archive)
+     */
+    public static PrecomputedIndex read(ZipDirectory zip) {
+        int entry = zip.find(LOCATION);
+        if (entry < 0) {
+            return null;
+        }
+        PrecomputedIndex index;
+        try {
+            index = read(new StringReader(StandardCharsets.UTF_8.decode(zip.read(entry)).toString()));
+        } catch (IOException ex) {
+            LOG.warn("Error on read index from [{}]: {}", zip.getLocation(), ex.getMessage());
+            return null;
+        }
+        int manifest = zip.find(JarFile.MANIFEST_NAME);
+        int files = 0;
+        for (int i = 0; i < zip.size(); i++) {
+            if (i != manifest && !zip.isDirectory(i)) {
+                files++;
+            }
+        }
+        int indexed = index.resources.size() - (index.resources.contains(JarFile.MANIFEST_NAME) ? 1 : 0);
+        if (files != indexed) {
+            LOG.warn("Index of [{}] doesn't match archive content ([{}] indexed, [{}] files), ignored",
+                    zip.getLocation(), indexed, files);
+            return null;
+        }
+        for (String resource : index.resources) {
+            if (resource.equals(LOCATION) || resource.equals(JarFile.MANIFEST_NAME)) {
+                continue;
+            }
+            int found = zip.find(resource);
+            long crc = index.crcs.getOrDefault(resource, NO_CRC);
+            if (found < 0 || zip.isDirectory(found) || crc != NO_CRC && zip.getCrc(found) != crc) {
+                LOG.warn("Index of [{}] doesn't match archive content (resource [{}]), ignored",
+                        zip.getLocation(), resource);
+                return null;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Write index.
+     *
+     * @param out output
+     * @throws IOException on write error
+     */
+    public void write(Writer out) throws IOException {
+        BufferedWriter writer = new BufferedWriter(out);
+        writer.write(HEADER);
+        writer.write(LINE_SEPARATOR);
+        for (String resource : resources) {
+            writer.write(resource);
+            writer.write(FIELD_SEPARATOR);
+            Long crc = crcs.get(resource);
+            if (crc != null) {
+                writer.write(Long.toHexString(crc));
+            }
+            ClassFileInfo info = classes.get(resource);
+            if (info != null) {
+                writer.write(FIELD_SEPARATOR);
+                writer.write(Integer.toHexString(info.getAccessFlags()));
+                writer.write(FIELD_SEPARATOR);
+                writer.write(Objects.toString(info.getSuperName(), ""));
+                writer.write(FIELD_SEPARATOR);
+                writer.write(StringUtils.join(info.getInterfaces(), LIST_SEPARATOR));
+                writer.write(FIELD_SEPARATOR);
+                writer.write(StringUtils.join(info.getAnnotations(), LIST_SEPARATOR));
+            }
+            writer.write(LINE_SEPARATOR);
+        }
+        writer.flush();
+    }
+
+    private static List<String> split(String value) {
+        if (value.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Arrays.asList(StringUtils.split(value, LIST_SEPARATOR)));
+    }
+
+    /**
+     * Generate index file.
+     *
+     * <p>
+     * Arguments: output file, then directories with classes and resources, e.g.:
+     * {@code build/generated/walib-index/META-INF/walib/index build/classes/java/main build/resources/main}
+     *
+     * @param args arguments
+     * @throws IOException              on read/write error
+     * @throws IllegalArgumentException on wrong arguments
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: PrecomputedIndex <output file> <directory>...");
+        }
+        Path output = Paths.get(args[0]);
+        List<Path> dirs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            dirs.add(Paths.get(args[i]));
+        }
+        PrecomputedIndex index = scan(dirs);
+        Path parent = output.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            index.write(writer);
+        }
+        LOG.info("Index [{}] written: [{}] resources, [{}] classes", output, index.resources.size(),
+                index.classes.size());
+    }
+}
@@ -0,0 +1,180 @@
+package dev.walgo.walib;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Access to resource content by classpath entry (container) and resource name.
+ *
+ * <p>
+ * Content is returned as read-only buffer: stored archive entries and directory files are
+ * memory-mapped (not copied), deflated entries are inflated to heap buffer. Opened archives are
+ * cached by this object (see {@link ClasspathSnapshot#getContent()}), so archive directory is read
+ * once. Multi-release JARs are read by logical names (see {@link MultiRelease}).
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+public final class ResourceContent {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final Map<String, ArchiveContainer> archives = new ConcurrentHashMap<>();
+
+    /**
+     * Create content reader with empty archive cache.
+     */
+    public ResourceContent() {
+        // do nothing
+    }
+
+    /**
+     * Read resource content.
+     *
+     * @param container classpath entry (JAR/ZIP, nested archive location or directory)
+     * @param name      resource name
+     * @return read-only buffer with content or null, when resource not found
+     * @throws IOException on read error
+     */
+    public ByteBuffer read(String container, String name) throws IOException {
+        ArchiveContainer archive = openArchive(container);
+        if (archive == null) {
+            return readFile(container, name);
+        }
+        ZipDirectory zip = archive.getArchive();
+        int entry = archive.lookup(name);
+        if (entry < 0 || zip.isDirectory(entry)) {
+            return null;
+        }
+        return zip.read(entry);
+    }
+
+    /**
+     * Read content of many resources from the same container. Archive is opened once, every resource
+     * is found by archive directory lookup.
+     *
+     * @param container classpath entry (JAR/ZIP, nested archive location or directory)
+     * @param names     resource names
+     * @return Map of resource name -> read-only buffer with content, in names order, not found
+     *         resources are absent
+     * @throws IOException on read error
+     */
+    public Map<String, ByteBuffer> readAll(String container, Collection<String> names) throws IOException {
+        Map<String, ByteBuffer> result = new LinkedHashMap<>();
+        ArchiveContainer archive = openArchive(container);
+        if (archive == null) {
+            for (String name : names) {
+                ByteBuffer content = readFile(container, name);
+                if (content != null) {
+                    result.put(name, content);
+                }
+            }
+            return result;
+        }
+        ZipDirectory zip = archive.getArchive();
+        for (String name : names) {
+            int entry = archive.lookup(name);
+            if (entry >= 0 && !zip.isDirectory(entry) && !result.containsKey(name)) {
+                result.put(name, zip.read(entry));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets CRC-32 of resource content. For archive entry CRC is taken from archive directory
+     * (content is not read), for directory file CRC is calculated.
+     *
+     * @param container classpath entry (JAR/ZIP, nested archive location or directory)
+     * @param name      resource name
+     * @return CRC-32 or -1, when resource not found
+     * @throws IOException on read error
+     */
+    public long getCrc(String container, String name) throws IOException {
+        ArchiveContainer archive = openArchive(container);
+        if (archive != null) {
+            ZipDirectory zip = archive.getArchive();
+            int entry = archive.lookup(name);
+            return entry < 0 || zip.isDirectory(entry) ? -1 : zip.getCrc(entry);
+        }
+        ByteBuffer content = readFile(container, name);
+        if (content == null) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    /**
+     * Gets SHA-256 digest of resource content.
+     *
+     * @param container classpath entry (JAR/ZIP, nested archive location or directory)
+     * @param name      resource name
+     * @return digest or null, when resource not found
+     * @throws IOException on read error
+     */
+    public byte[] getDigest(String container, String name) throws IOException {
+        ByteBuffer content = read(container, name);
+        if (content == null) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            digest.update(content);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " is not supported", ex);
+        }
+    }
+
+    /**
+     * Gets opened archive.
+     *
+     * @return archive or null, when container is directory
+     */
+    private ArchiveContainer openArchive(String container) throws IOException {
+        ArchiveContainer archive = archives.get(container);
+        if (archive != null) {
+            return archive;
+        }
+        if (!ArchiveContainer.isNested(container) && Files.isDirectory(Path.of(container))) {
+            return null;
+        }
+        archive = ArchiveContainer.open(container);
+        if (archive == null) {
+            throw new NoSuchFileException(container);
+        }
+        ArchiveContainer cached = archives.putIfAbsent(container, archive);
+        return cached != null ? cached : archive;
+    }
+
+    private static ByteBuffer readFile(String container, String name) throws IOException {
+        Path root = Path.of(container).toAbsolutePath().normalize();
+        Path file = root.resolve(name).normalize();
+        if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large: " + file);
+            }
+            if (size == 0) {
+                return ByteBuffer.allocate(0).asReadOnlyBuffer();
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package dev.walgo.walib;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Report of resources, which are contained in several classpath entries (e.g. shadowed classes).
+ *
+ * <p>
+ * Resources with the same name are compared by content: CRC-32 from archive directory first, full
+ * content digest (SHA-256) only when CRCs are equal. Classes are not loaded.
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+public final class ResourceDuplicates {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResourceDuplicates.class);
+    /** Count of resource names, compared by one task of parallel analysis. */
+    private static final int CHUNK_SIZE = 64;
+
+    private final Map<String, List<String>> duplicates;
+    private final Map<String, List<String>> conflicts;
+
+    private ResourceDuplicates(Map<String, List<String>> duplicates, Map<String, List<String>> conflicts) {
+        this.duplicates = duplicates;
+        this.conflicts = conflicts;
+    }
+
+    /**
+     * Gets resources with identical content in several classpath entries.
+     *
+     * @return Map of resource name -> classpath entries (in classpath order), names are sorted
+     */
+    public Map<String, List<String>> getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Gets resources with different content in several classpath entries (conflicting versions).
+     * First classpath entry shadows others.
+     *
+     * @return Map of resource name -> classpath entries (in classpath order), names are sorted
+     */
+    public Map<String, List<String>> getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Analyze resources of index.
+     *
+     * @param index    resource index
+     * @param content  content reader for index resources
+     * @param filter   filter of resource names, e.g. {@code ResourceFilter.suffix(".class")}
+     * @param executor executor for concurrent analysis, null - sequential analysis
+     * @return report
+     */
+    public static ResourceDuplicates analyze(
+            ResourceIndex index, ResourceContent content, ResourceFilter filter, Executor executor) {
+        List<Map.Entry<String, List<String>>> candidates = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : index.findDuplicates().entrySet()) {
+            if (filter.accept(entry.getKey())) {
+                candidates.add(entry);
+            }
+        }
+        List<Boolean> identical = new ArrayList<>(candidates.size());
+        if (executor == null || candidates.size() <= CHUNK_SIZE) {
+            identical.addAll(compareChunk(candidates, content));
+        } else {
+            List<CompletableFuture<List<Boolean>>> futures = new ArrayList<>();
+            for (int from = 0; from < candidates.size(); from += CHUNK_SIZE) {
+                List<Map.Entry<String, List<String>>> chunk = candidates.subList(from,
+                        Math.min(from + CHUNK_SIZE, candidates.size()));
+                futures.add(CompletableFuture.supplyAsync(() -> compareChunk(chunk, content), executor));
+            }
+            for (CompletableFuture<List<Boolean>> future : futures) {
+                identical.addAll(future.join());
+            }
+        }
+        Map<String, List<String>> duplicates = new LinkedHashMap<>();
+        Map<String, List<String>> conflicts = new LinkedHashMap<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            Boolean same = identical.get(i);
+            if (same == null) {
+                continue;
+            }
+            Map.Entry<String, List<String>> candidate = candidates.get(i);
+            (same ? duplicates : conflicts).put(candidate.getKey(), Collections.unmodifiableList(candidate.getValue()));
+        }
+        LOG.debug("Duplicates analyzed: [{}] candidates, [{}] duplicates, [{}] conflicts", candidates.size(),
+                duplicates.size(), conflicts.size());
+        return new ResourceDuplicates(Collections.unmodifiableMap(duplicates), Collections.unmodifiableMap(conflicts));
+    }
+
+    /** Compare content of every candidate: true - identical, false - different, null - read error. */
+    private static List<Boolean> compareChunk(List<Map.Entry<String, List<String>>> candidates,
+            ResourceContent content) {
+        List<Boolean> result = new ArrayList<>(candidates.size());
+        for (Map.Entry<String, List<String>> candidate : candidates) {
+            try {
+                result.add(isIdentical(candidate.getKey(), candidate.getValue(), content));
+            } catch (IOException ex) {
+                LOG.warn("Error on compare resource [{}] in {}: {}", candidate.getKey(), candidate.getValue(),
+                        ex.getMessage());
+                result.add(null);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isIdentical(String name, List<String> containers, ResourceContent content)
+            throws IOException {
+        long crc = content.getCrc(containers.get(0), name);
+        for (int i = 1; i < containers.size(); i++) {
+            if (content.getCrc(containers.get(i), name) != crc) {
+                return false;
+            }
+        }
+        // CRC collision is possible, so compare full digest
+        byte[] digest = content.getDigest(containers.get(0), name);
+        for (int i = 1; i < containers.size(); i++) {
+            if (!Arrays.equals(digest, content.getDigest(containers.get(i), name))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
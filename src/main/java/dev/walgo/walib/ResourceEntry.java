@@ -0,0 +1,65 @@
+package dev.walgo.walib;
+
+import java.util.Objects;
+
+/**
+ * Resource with its classpath entry.
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+public final class ResourceEntry {
+
+    private final String container;
+    private final String name;
+
+    /**
+     * Constructor.
+     *
+     * @param container classpath entry (JAR/ZIP file, directory or nested location)
+     * @param name      resource name, e.g. "my/package/MyClass.class"
+     */
+    public ResourceEntry(String container, String name) {
+        this.container = container;
+        this.name = name;
+    }
+
+    /**
+     * Gets classpath entry, which contains resource.
+     *
+     * @return classpath entry
+     */
+    public String getContainer() {
+        return container;
+    }
+
+    /**
+     * Gets resource name.
+     *
+     * @return resource name
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ResourceEntry)) {
+            return false;
+        }
+        ResourceEntry other = (ResourceEntry) obj;
+        return container.equals(other.container) && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(container, name);
+    }
+
+    @Override
+    public String toString() {
+        return container + ArchiveContainer.SEPARATOR + name;
+    }
+}
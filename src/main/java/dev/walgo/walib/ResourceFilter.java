@@ -0,0 +1,167 @@
+package dev.walgo.walib;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+/**
+ * Filter for resource names.
+ *
+ * <p>
+ * For archives filter is applied to raw (UTF-8 encoded) entry name, before name string is created,
+ * see {@link #accept(ZipDirectory, int, int)}. For directories filter is applied while walking, so
+ * subdirectories, which can't contain accepted resources, are skipped (see
+ * {@link #acceptDirectory(String)}).
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+@FunctionalInterface
+public interface ResourceFilter {
+
+    /**
+     * Check resource name.
+     *
+     * @param name resource name, e.g. "my/package/MyClass.class"
+     * @return true, when resource accepted
+     */
+    boolean accept(String name);
+
+    /**
+     * Check raw name of archive entry. By default name is decoded and checked by
+     * {@link #accept(String)}.
+     *
+     * @param zip    archive
+     * @param entry  entry index
+     * @param offset count of name bytes, which are not part of resource name (e.g.
+     *               "BOOT-INF/classes/")
+     * @return true, when resource accepted
+     */
+    default boolean accept(ZipDirectory zip, int entry, int offset) {
+        String name = zip.getName(entry);
+        return accept(offset == 0 ? name : name.substring(offset));
+    }
+
+    /**
+     * Check if directory can contain accepted resources. By default all directories are walked.
+     *
+     * @param directory directory name with trailing "/", e.g. "my/package/"
+     * @return false, when no resource of directory (and its subdirectories) is accepted
+     */
+    default boolean acceptDirectory(String directory) {
+        return true;
+    }
+
+    /**
+     * Filter, which accepts all resources.
+     *
+     * @return filter
+     */
+    static ResourceFilter all() {
+        return new ResourceFilter() {
+            @Override
+            public boolean accept(String name) {
+                return true;
+            }
+
+            @Override
+            public boolean accept(ZipDirectory zip, int entry, int offset) {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Filter for resources, which names start with given prefix.
+     *
+     * @param prefix name prefix, e.g. "my/package/"
+     * @return filter
+     */
+    static ResourceFilter prefix(String prefix) {
+        byte[] bytes = prefix.getBytes(StandardCharsets.UTF_8);
+        return new ResourceFilter() {
+            @Override
+            public boolean accept(String name) {
+                return name.startsWith(prefix);
+            }
+
+            @Override
+            public boolean accept(ZipDirectory zip, int entry, int offset) {
+                return zip.nameRegionEquals(entry, offset, bytes);
+            }
+
+            @Override
+            public boolean acceptDirectory(String directory) {
+                return directory.startsWith(prefix) || prefix.startsWith(directory);
+            }
+        };
+    }
+
+    /**
+     * Filter for resources, which names end with given suffix.
+     *
+     * @param suffix name suffix, e.g. ".class"
+     * @return filter
+     */
+    static ResourceFilter suffix(String suffix) {
+        byte[] bytes = suffix.getBytes(StandardCharsets.UTF_8);
+        return new ResourceFilter() {
+            @Override
+            public boolean accept(String name) {
+                return name.endsWith(suffix);
+            }
+
+            @Override
+            public boolean accept(ZipDirectory zip, int entry, int offset) {
+                return zip.getNameLength(entry) - offset >= bytes.length && zip.nameEndsWith(entry, bytes);
+            }
+        };
+    }
+
+    /**
+     * Filter for resources, which names correspond to regex (with find semantic, as
+     * {@link ResourceUtils#findResourceFiles(String)}).
+     *
+     * @param regex resource name regex
+     * @return filter
+     */
+    static ResourceFilter regex(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        return name -> pattern.matcher(name).find();
+    }
+
+    /**
+     * Filter for resources, which names match glob pattern (see {@link ResourceGlob}), e.g.
+     * "db/*.sql".
+     *
+     * @param glob glob pattern
+     * @return filter
+     */
+    static ResourceFilter glob(String glob) {
+        return ResourceGlob.compile(glob);
+    }
+
+    /**
+     * Combine filters: resource should be accepted by both.
+     *
+     * @param other other filter
+     * @return combined filter
+     */
+    default ResourceFilter and(ResourceFilter other) {
+        ResourceFilter self = this;
+        return new ResourceFilter() {
+            @Override
+            public boolean accept(String name) {
+                return self.accept(name) && other.accept(name);
+            }
+
+            @Override
+            public boolean accept(ZipDirectory zip, int entry, int offset) {
+                return self.accept(zip, entry, offset) && other.accept(zip, entry, offset);
+            }
+
+            @Override
+            public boolean acceptDirectory(String directory) {
+                return self.acceptDirectory(directory) && other.acceptDirectory(directory);
+            }
+        };
+    }
+}
@@ -0,0 +1,261 @@
+package dev.walgo.walib;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Glob pattern for resource names, e.g. "com/acme/**&#47;*.class" or "db/*.sql".
+ *
+ * <p>
+ * Syntax: "*" - any characters inside one name segment (without "/"), "?" - one character (not
+ * "/"), "**" as whole segment - any count of segments (including none), "\" - escape of next
+ * character. Whole name should match.
+ *
+ * <p>
+ * Pattern is compiled to literal prefix and suffix (checked first, for archives - on raw name bytes)
+ * and list of segments. Segments are matched by greedy wildcard matching, which keeps only last
+ * star position (no backtracking of regex engine), so match time is linear for typical patterns.
+ * Literal prefix is used for range search in {@link ResourceIndex} and for pruning of directory
+ * walks (see {@link #acceptDirectory(String)}).
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+public final class ResourceGlob implements ResourceFilter {
+
+    private static final String ANY_SEGMENTS = "**";
+    private static final char ESCAPE = '\\';
+    /** Marker of wildcard in compiled segment. */
+    private static final char STAR = '\uFFFF';
+    private static final char ANY_CHAR = '\uFFFE';
+
+    private final String glob;
+    private final String prefix;
+    private final String suffix;
+    private final byte[] prefixBytes;
+    private final byte[] suffixBytes;
+    /** Compiled segments: literal chars, {@link #STAR}, {@link #ANY_CHAR}; null - "**". */
+    private final String[] segments;
+    private final boolean literal;
+
+    private ResourceGlob(String glob, String prefix, String suffix, String[] segments, boolean literal) {
+        this.glob = glob;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        this.suffixBytes = suffix.getBytes(StandardCharsets.UTF_8);
+        this.segments = segments;
+        this.literal = literal;
+    }
+
+    /**
+     * Compile glob pattern.
+     *
+     * @param glob glob pattern, e.g. "com/acme/**&#47;*.class"
+     * @return compiled pattern
+     */
+    public static ResourceGlob compile(String glob) {
+        List<String> segments = new ArrayList<>();
+        StringBuilder prefix = new StringBuilder();
+        StringBuilder suffix = new StringBuilder();
+        StringBuilder segment = new StringBuilder();
+        boolean wildcard = false;
+        boolean anySegments = false;
+        int i = 0;
+        while (i <= glob.length()) {
+            if (i == glob.length() || glob.charAt(i) == '/') {
+                String value = segment.toString();
+                if (ANY_SEGMENTS.equals(glob.substring(segmentStart(glob, i), i))) {
+                    // "**" matches any segments, several "**" in a row are the same
+                    if (segments.isEmpty() || segments.get(segments.size() - 1) != null) {
+                        segments.add(null);
+                    }
+                    wildcard = true;
+                    anySegments = true;
+                    suffix.setLength(0);
+                } else {
+                    segments.add(value);
+                    anySegments = false;
+                }
+                if (i < glob.length()) {
+                    if (!wildcard) {
+                        prefix.append('/');
+                    }
+                    // "**" can match no segments, so its separator isn't part of suffix
+                    if (!anySegments) {
+                        suffix.append('/');
+                    }
+                }
+                segment.setLength(0);
+                i++;
+                continue;
+            }
+            char ch = glob.charAt(i);
+            if (ch == ESCAPE && i + 1 < glob.length()) {
+                ch = glob.charAt(++i);
+                segment.append(ch);
+                if (!wildcard) {
+                    prefix.append(ch);
+                }
+                suffix.append(ch);
+            } else if (ch == '*' || ch == '?') {
+                segment.append(ch == '*' ? STAR : ANY_CHAR);
+                wildcard = true;
+                suffix.setLength(0);
+            } else {
+                segment.append(ch);
+                if (!wildcard) {
+                    prefix.append(ch);
+                }
+                suffix.append(ch);
+            }
+            i++;
+        }
+        String suffixValue = wildcard ? suffix.toString() : "";
+        return new ResourceGlob(glob, prefix.toString(), suffixValue, segments.toArray(new String[0]), !wildcard);
+    }
+
+    /** Start of segment, which ends at given position (escapes are ignored, it's enough for "**"). */
+    private static int segmentStart(String glob, int end) {
+        int pos = glob.lastIndexOf('/', end - 1);
+        return pos < 0 ? 0 : pos + 1;
+    }
+
+    /**
+     * Gets literal prefix of pattern (before first wildcard).
+     *
+     * @return prefix, e.g. "com/acme/" for "com/acme/**&#47;*.class"
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Check if resource name matches pattern.
+     *
+     * @param name resource name
+     * @return true, when whole name matches
+     */
+    @Override
+    public boolean accept(String name) {
+        if (literal) {
+            return name.equals(prefix);
+        }
+        if (!name.startsWith(prefix) || !name.endsWith(suffix)
+                || name.length() < prefix.length() + suffix.length()) {
+            return false;
+        }
+        return matchSegments(name);
+    }
+
+    @Override
+    public boolean accept(ZipDirectory zip, int entry, int offset) {
+        int length = zip.getNameLength(entry) - offset;
+        if (length < prefixBytes.length + suffixBytes.length
+                || !zip.nameRegionEquals(entry, offset, prefixBytes)
+                || !zip.nameEndsWith(entry, suffixBytes)) {
+            return false;
+        }
+        return ResourceFilter.super.accept(zip, entry, offset);
+    }
+
+    /**
+     * Check if directory can contain matched resources: directory segments should match pattern
+     * segments (any directory matches "**").
+     *
+     * @param directory directory name with trailing "/", e.g. "com/acme/"
+     * @return false, when no resource of directory can match
+     */
+    @Override
+    public boolean acceptDirectory(String directory) {
+        int start = 0;
+        for (int index = 0; start < directory.length(); index++) {
+            if (index < segments.length && segments[index] == null) {
+                return true;
+            }
+            if (index >= segments.length - 1) {
+                // last pattern segment is file name
+                return false;
+            }
+            int end = directory.indexOf('/', start);
+            if (end < 0) {
+                end = directory.length();
+            }
+            if (!matchSegment(segments[index], directory, start, end)) {
+                return false;
+            }
+            start = end + 1;
+        }
+        return true;
+    }
+
+    /** Match name segments to pattern segments, "**" keeps last position for retry. */
+    private boolean matchSegments(String name) {
+        int[] starts = new int[name.length() + 2];
+        int count = 0;
+        starts[count++] = 0;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) == '/') {
+                starts[count++] = i + 1;
+            }
+        }
+        // segment n is [starts[n], starts[n + 1] - 1)
+        starts[count] = name.length() + 1;
+        int pattern = 0;
+        int segment = 0;
+        int retryPattern = -1;
+        int retrySegment = -1;
+        while (segment < count) {
+            if (pattern < segments.length && segments[pattern] == null) {
+                retryPattern = ++pattern;
+                retrySegment = segment;
+            } else if (pattern < segments.length
+                    && matchSegment(segments[pattern], name, starts[segment], starts[segment + 1] - 1)) {
+                pattern++;
+                segment++;
+            } else if (retryPattern >= 0) {
+                // "**" takes one more segment
+                pattern = retryPattern;
+                segment = ++retrySegment;
+            } else {
+                return false;
+            }
+        }
+        while (pattern < segments.length && segments[pattern] == null) {
+            pattern++;
+        }
+        return pattern == segments.length;
+    }
+
+    /** Match name region (one segment) to compiled segment, "*" keeps last position for retry. */
+    private static boolean matchSegment(String segment, String name, int from, int to) {
+        int p = 0;
+        int n = from;
+        int retryP = -1;
+        int retryN = -1;
+        while (n < to) {
+            if (p < segment.length() && segment.charAt(p) == STAR) {
+                retryP = ++p;
+                retryN = n;
+            } else if (p < segment.length()
+                    && (segment.charAt(p) == ANY_CHAR || segment.charAt(p) == name.charAt(n))) {
+                p++;
+                n++;
+            } else if (retryP >= 0) {
+                p = retryP;
+                n = ++retryN;
+            } else {
+                return false;
+            }
+        }
+        while (p < segment.length() && segment.charAt(p) == STAR) {
+            p++;
+        }
+        return p == segment.length();
+    }
+
+    @Override
+    public String toString() {
+        return glob;
+    }
+}
@@ -0,0 +1,252 @@
+package dev.walgo.walib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sorted index of resource names (based on ResourceLoader output).
+ *
+ * <p>
+ * Names are kept in sorted (compact) list, so all resources of package (directory) are found by
+ * binary search of prefix range, without scan of all resources.
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+public final class ResourceIndex {
+
+    private final List<String> names;
+    private final String[] containers;
+    private final int[] containerIndex;
+
+    private ResourceIndex(List<String> names, String[] containers, int[] containerIndex) {
+        this.names = names;
+        this.containers = containers;
+        this.containerIndex = containerIndex;
+    }
+
+    /**
+     * Build index from resources.
+     *
+     * @param resources Map of classpath entry -> resource list (see
+     *                  {@link ResourceLoader#loadFromClasspath()}) or module name -> resource list
+     *                  (see {@link ResourceLoader#loadFromModules(ModuleLayer)})
+     * @return built index
+     */
+    public static ResourceIndex of(Map<String, List<String>> resources) {
+        int size = 0;
+        for (List<String> items : resources.values()) {
+            size += items.size();
+        }
+        Item[] items = new Item[size];
+        String[] containers = resources.keySet().toArray(new String[0]);
+        int pos = 0;
+        for (int i = 0; i < containers.length; i++) {
+            for (String name : resources.get(containers[i])) {
+                items[pos++] = new Item(name, i);
+            }
+        }
+        // sort is stable, so duplicates keep classpath order
+        Arrays.sort(items, Comparator.comparing(item -> item.name));
+        List<String> names = new ArrayList<>(size);
+        int[] containerIndex = new int[size];
+        for (int i = 0; i < size; i++) {
+            names.add(items[i].name);
+            containerIndex[i] = items[i].container;
+        }
+        // sorted names share directories, so compact list is small
+        return new ResourceIndex(CompactStringList.of(names), containers, containerIndex);
+    }
+
+    /**
+     * Gets count of indexed resources.
+     *
+     * @return count of resources
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Find resources, which names start with given prefix.
+     *
+     * @param prefix name prefix, e.g. "my/package/", null or empty - all resources
+     * @return resource names, in sorted order
+     */
+    public List<String> findByPrefix(String prefix) {
+        return find(prefix, null);
+    }
+
+    /**
+     * Find resources, which names start with given prefix and rest of name (after prefix) corresponds
+     * to regex.
+     *
+     * @param prefix  name prefix, e.g. "my/package/", null or empty - all resources
+     * @param pattern regex for rest of name (with find semantic, "^" is bound to prefix end), null -
+     *                any name
+     * @return resource names, in sorted order
+     */
+    public List<String> find(String prefix, Pattern pattern) {
+        return find(prefix, pattern, null);
+    }
+
+    /**
+     * Find resources from given classpath entries (or modules), which names start with given prefix
+     * and rest of name (after prefix) corresponds to regex.
+     *
+     * @param prefix     name prefix, e.g. "my/package/", null or empty - all resources
+     * @param pattern    regex for rest of name (see {@link #find(String, Pattern)}), null - any name
+     * @param containers classpath entries (or module names), null - all
+     * @return resource names, in sorted order
+     */
+    public List<String> find(String prefix, Pattern pattern, Collection<String> containers) {
+        String start = prefix == null ? "" : prefix;
+        int from = lowerBound(start);
+        int to = upperBound(start, from);
+        if (from >= to) {
+            return Collections.emptyList();
+        }
+        if (pattern == null && containers == null) {
+            return names.subList(from, to);
+        }
+        boolean[] accepted = null;
+        if (containers != null) {
+            accepted = new boolean[this.containers.length];
+            for (int i = 0; i < this.containers.length; i++) {
+                accepted[i] = containers.contains(this.containers[i]);
+            }
+        }
+        List<String> result = new ArrayList<>();
+        Matcher matcher = pattern == null ? null : pattern.matcher("");
+        for (int i = from; i < to; i++) {
+            if (accepted != null && !accepted[containerIndex[i]]) {
+                continue;
+            }
+            String name = names.get(i);
+            if (matcher != null) {
+                matcher.reset(name).region(start.length(), name.length());
+                if (!matcher.find()) {
+                    continue;
+                }
+            }
+            result.add(name);
+        }
+        return result;
+    }
+
+    /**
+     * Find resources, which names match glob pattern. Only range of literal prefix of pattern is
+     * checked.
+     *
+     * @param glob glob pattern (see {@link ResourceGlob})
+     * @return resource names, in sorted order
+     */
+    public List<String> find(ResourceGlob glob) {
+        String prefix = glob.getPrefix();
+        int from = lowerBound(prefix);
+        int to = upperBound(prefix, from);
+        List<String> result = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            String name = names.get(i);
+            if (glob.accept(name)) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets classpath entries, which contain given resource.
+     *
+     * @param name resource name
+     * @return classpath entries, in classpath order
+     */
+    public List<String> getContainers(String name) {
+        int from = lowerBound(name);
+        List<String> result = new ArrayList<>(1);
+        for (int i = from; i < names.size() && names.get(i).equals(name); i++) {
+            result.add(containers[containerIndex[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * Find resources, which are contained in several classpath entries (same name).
+     *
+     * @return Map of resource name -> classpath entries, in classpath order; names are sorted
+     */
+    public Map<String, List<String>> findDuplicates() {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        String previous = null;
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            if (name.equals(previous)) {
+                List<String> entries = result.get(name);
+                if (entries == null) {
+                    entries = new ArrayList<>();
+                    entries.add(containers[containerIndex[i - 1]]);
+                    result.put(name, entries);
+                }
+                entries.add(containers[containerIndex[i]]);
+            }
+            previous = name;
+        }
+        return result;
+    }
+
+    /**
+     * Gets all indexed classpath entries (or modules).
+     *
+     * @return classpath entries, in classpath order
+     */
+    List<String> getContainerNames() {
+        return List.of(containers);
+    }
+
+    /** First position with name, which is not less than prefix. */
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = names.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names.get(mid).compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** First position after from with name, which doesn't start with prefix. */
+    private int upperBound(String prefix, int from) {
+        int low = from;
+        int high = names.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names.get(mid).startsWith(prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static final class Item {
+        private final String name;
+        private final int container;
+
+        private Item(String name, int container) {
+            this.name = name;
+            this.container = container;
+        }
+    }
+}
@@ -1,22 +1,52 @@
 package dev.walgo.walib;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.lang.module.ModuleReader;
+import java.lang.module.ResolvedModule;
 import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.ProviderNotFoundException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.jar.JarEntry;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import org.apache.commons.lang3.StringUtils;
@@ -32,75 +62,950 @@ public class ResourceLoader {
 
     private static final Logger LOG = LoggerFactory.getLogger(ResourceLoader.class);
 
-    private static volatile Map<String, List<String>> CLASSPATH_RESOURCES;
-    private static String CLASS_PATH;
-    private static String LOADER_PATH;
+    /** Directories of nested archives (libraries) in Spring Boot fat JAR/WAR. */
+    private static final List<String> NESTED_LIB_DIRS = List.of("BOOT-INF/lib/", "WEB-INF/lib/");
+    /** Directories of classes in Spring Boot fat JAR/WAR. */
+    private static final List<String> NESTED_CLASS_DIRS = List.of("BOOT-INF/classes/", "WEB-INF/classes/");
+    private static final String JAR_EXT = ".jar";
+    private static final String ZIP_EXT = ".zip";
+    private static final String JRT_SCHEME = "jrt";
+
+    private static final Object SNAPSHOT_LOCK = new Object();
+    private static final AtomicLong VERSION = new AtomicLong();
+    private static volatile ClasspathSnapshot SNAPSHOT;
+    /** Running classpath scan, guarded by SNAPSHOT_LOCK. */
+    private static CompletableFuture<ClasspathSnapshot> SCAN_IN_FLIGHT;
+    /** Changes, which came during classpath scan, guarded by SNAPSHOT_LOCK. */
+    private static final List<Map<String, UnaryOperator<List<String>>>> PENDING_CHANGES = new ArrayList<>();
+    /** Watcher of classpath directories, guarded by SNAPSHOT_LOCK. */
+    private static ClasspathWatcher WATCHER;
+    private static final List<ClasspathListener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static volatile Executor EXECUTOR;
+    private static volatile Path INDEX_FILE;
+    private static volatile int MAX_DEPTH = Integer.MAX_VALUE;
+    private static volatile boolean SYSTEM_MODULES;
+    private static volatile Map<String, List<String>> JRT_RESOURCES;
+    /** Module layer -> module name -> resource list. */
+    private static final Map<ModuleLayer, Map<String, List<String>>> LAYER_RESOURCES = new WeakHashMap<>();
+    /** Class loader -> resources of its own URLs (without parents). */
+    private static final Map<ClassLoader, Map<String, List<String>>> LOADER_RESOURCES = new WeakHashMap<>();
 
     private ResourceLoader() {
     }
 
+    /**
+     * Switch parallel classpath scanning on or off. Parallel scanning uses common fork-join pool.
+     * Executor is used for parallel class loading in
+     * {@link ResourceUtils#findClassesFromResources(ClassLoader, String, Class, boolean)} too.
+     *
+     * @param parallel true - scan classpath entries concurrently, false - one by one
+     */
+    public static void setParallel(boolean parallel) {
+        EXECUTOR = parallel ? ForkJoinPool.commonPool() : null;
+    }
+
+    /**
+     * Set executor for parallel classpath scanning (e.g. virtual thread executor).
+     *
+     * @param executor executor for scanning, null - sequential scanning
+     */
+    public static void setExecutor(Executor executor) {
+        EXECUTOR = executor;
+    }
+
+    /**
+     * Gets executor, used for classpath scanning.
+     *
+     * @return executor or null, when scanning is sequential
+     */
+    public static Executor getExecutor() {
+        return EXECUTOR;
+    }
+
+    /**
+     * Set file for persistent classpath index. When index is set, {@link #loadFromClasspath()}
+     * rescans only JAR/ZIP entries, which were changed (by size or modification time) since last
+     * scan. Directories are always rescanned.
+     *
+     * @param indexFile index file location, null - don't use index
+     */
+    public static void setIndexFile(Path indexFile) {
+        INDEX_FILE = indexFile;
+    }
+
+    /**
+     * Gets file for persistent classpath index.
+     *
+     * @return index file location or null, when index is not used
+     */
+    public static Path getIndexFile() {
+        return INDEX_FILE;
+    }
+
+    /**
+     * Include JDK modules (from "jrt:/" runtime image) into module scanning (see
+     * {@link #loadFromModules(ModuleLayer)}). Off by default.
+     *
+     * @param systemModules true - scan JDK modules too, false - only application modules
+     */
+    public static void setSystemModules(boolean systemModules) {
+        SYSTEM_MODULES = systemModules;
+    }
+
+    /**
+     * Set maximum depth of directory walk for directory resource containers.
+     *
+     * @param maxDepth maximum depth (1 - only files of directory itself)
+     */
+    public static void setMaxDepth(int maxDepth) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Max depth should be positive: " + maxDepth);
+        }
+        MAX_DEPTH = maxDepth;
+    }
+
+    /**
+     * Gets maximum depth of directory walk.
+     *
+     * @return maximum depth
+     */
+    public static int getMaxDepth() {
+        return MAX_DEPTH;
+    }
+
+    /** Fork-join pool for directory walk: executor itself or common pool, null for sequential scan. */
+    private static ForkJoinPool getForkJoinPool() {
+        Executor executor = EXECUTOR;
+        if (executor == null) {
+            return null;
+        }
+        return executor instanceof ForkJoinPool ? (ForkJoinPool) executor : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Gets time, spent for load every classpath entry during last {@link #loadFromClasspath()}.
+     *
+     * @return Map of classpath entry -> load time, in classpath order
+     */
+    public static Map<String, Duration> getEntryTimings() {
+        ClasspathSnapshot snapshot = SNAPSHOT;
+        return snapshot == null ? Map.of() : snapshot.getEntryTimings();
+    }
+
     /**
      * Load list of all resources (classes too) from classpath. Also supports Spring classloader.
      *
+     * <p>
+     * Result is cached (see {@link #getSnapshot()}) and is rescanned, when class path is changed.
+     *
      * @return Map of classpath entry -> resource list classpath entry could be jar/war file or directory
      */
     public static final Map<String, List<String>> loadFromClasspath() {
+        return getSnapshot().getResources();
+    }
 
+    /**
+     * Load resources from classpath, accepted by filter (see {@link #load(String, ResourceFilter)}).
+     * Classpath is scanned every time, snapshot is not used nor changed.
+     *
+     * @param filter resource filter
+     * @return Map of classpath entry -> accepted resources
+     */
+    public static Map<String, List<String>> loadFromClasspath(ResourceFilter filter) {
+        String classPath = System.getProperty("java.class.path");
+        String loaderPath = System.getProperty("loader.path");
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (Map<String, List<String>> resources
+                : loadEach(getClasspathEntries(classPath, loaderPath), EXECUTOR, null, filter, null).values()) {
+            result.putAll(resources);
+        }
+        return result;
+    }
+
+    /**
+     * Gets current classpath snapshot. When there is no snapshot or class path is changed, classpath
+     * is scanned. Only one scan is running at once, concurrent callers wait for it.
+     *
+     * @return classpath snapshot
+     */
+    public static ClasspathSnapshot getSnapshot() {
+        String classPath = System.getProperty("java.class.path");
+        String loaderPath = System.getProperty("loader.path");
+        ClasspathSnapshot snapshot = SNAPSHOT;
+        if (snapshot != null && snapshot.matches(classPath, loaderPath)) {
+            return snapshot;
+        }
+        return scan(classPath, loaderPath, snapshot);
+    }
+
+    /**
+     * Rescan classpath and publish new snapshot.
+     *
+     * @return new classpath snapshot
+     */
+    public static ClasspathSnapshot refresh() {
+        return scan(System.getProperty("java.class.path"), System.getProperty("loader.path"), SNAPSHOT);
+    }
+
+    /**
+     * Rescan classpath, when classpath entries were changed (by fingerprint, see
+     * {@link ClasspathSnapshot}) since last scan.
+     *
+     * @return current classpath snapshot (new one, when classpath was rescanned)
+     */
+    public static ClasspathSnapshot refreshIfChanged() {
+        ClasspathSnapshot snapshot = getSnapshot();
         String classPath = System.getProperty("java.class.path");
         String loaderPath = System.getProperty("loader.path");
+        if (snapshot.matches(classPath, loaderPath)
+                && !snapshot.isChanged(getClasspathEntries(classPath, loaderPath), MAX_DEPTH)) {
+            return snapshot;
+        }
+        return scan(classPath, loaderPath, snapshot);
+    }
+
+    /**
+     * Switch watching of classpath directories on or off. Directories of current snapshot are
+     * registered in {@link java.nio.file.WatchService}: created and deleted files are applied to
+     * snapshot (new snapshot version is published) without full rescan, listeners (see
+     * {@link ResourceUtils#addClasspathListener(ClasspathListener)}) get the changes. Modification of
+     * file content is not a change of resource names, so it's not reported.
+     *
+     * <p>
+     * Intended for development and hot-reload environment. JAR/ZIP entries are not watched (use
+     * {@link #refreshIfChanged()} for them).
+     *
+     * @param watching true - start watching, false - stop it
+     */
+    public static void setWatching(boolean watching) {
+        ClasspathSnapshot snapshot = watching ? getSnapshot() : null;
+        synchronized (SNAPSHOT_LOCK) {
+            if (WATCHER != null) {
+                WATCHER.close();
+                WATCHER = null;
+            }
+            if (watching) {
+                try {
+                    WATCHER = ClasspathWatcher.start(snapshot.getResources().keySet(), MAX_DEPTH);
+                } catch (IOException ex) {
+                    LOG.error("Can't watch classpath directories: {}", ex.getMessage());
+                }
+            }
+        }
+    }
 
-        if (CLASSPATH_RESOURCES != null) {
-            synchronized (ResourceLoader.class) {
-                if (Objects.equals(CLASS_PATH, classPath) && Objects.equals(LOADER_PATH, loaderPath)) {
-                    if (CLASSPATH_RESOURCES != null) {
-                        return CLASSPATH_RESOURCES;
+    /**
+     * Check if classpath directories are watched.
+     *
+     * @return true, when watching is on
+     */
+    public static boolean isWatching() {
+        synchronized (SNAPSHOT_LOCK) {
+            return WATCHER != null;
+        }
+    }
+
+    static void addListener(ClasspathListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    static void removeListener(ClasspathListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Apply changes of classpath entries to current snapshot and notify listeners. When classpath
+     * scan is running (scan could pass changed directory already), changes are queued and applied to
+     * snapshot of the scan after it's published.
+     *
+     * @param updates Map of classpath entry -> function, which builds new resource list from current
+     *                one
+     */
+    static void applyChanges(Map<String, UnaryOperator<List<String>>> updates) {
+        List<ClasspathChange> changes = new ArrayList<>();
+        synchronized (SNAPSHOT_LOCK) {
+            ClasspathSnapshot current = SNAPSHOT;
+            if (current == null) {
+                return;
+            }
+            if (SCAN_IN_FLIGHT != null) {
+                PENDING_CHANGES.add(updates);
+                return;
+            }
+            long scanTime = System.currentTimeMillis();
+            Map<String, List<String>> resources = new LinkedHashMap<>(current.getResources());
+            // no scan is running, so version isn't changed concurrently
+            long version = VERSION.get() + 1;
+            for (Map.Entry<String, UnaryOperator<List<String>>> update : updates.entrySet()) {
+                List<String> old = resources.get(update.getKey());
+                if (old == null) {
+                    continue;
+                }
+                List<String> items = update.getValue().apply(old);
+                Set<String> oldSet = new HashSet<>(old);
+                Set<String> newSet = new HashSet<>(items);
+                List<String> added = items.stream().filter(it -> !oldSet.contains(it)).collect(Collectors.toList());
+                List<String> removed = old.stream().filter(it -> !newSet.contains(it)).collect(Collectors.toList());
+                if (!added.isEmpty() || !removed.isEmpty()) {
+                    resources.put(update.getKey(), CompactStringList.of(items));
+                    changes.add(new ClasspathChange(version, update.getKey(), Collections.unmodifiableList(added),
+                            Collections.unmodifiableList(removed)));
+                }
+            }
+            if (changes.isEmpty()) {
+                return;
+            }
+            SNAPSHOT = current.withResources(VERSION.incrementAndGet(), Collections.unmodifiableMap(resources),
+                    scanTime, changes.stream().map(ClasspathChange::getContainer).collect(Collectors.toSet()));
+        }
+        for (ClasspathChange change : changes) {
+            LOG.debug("Classpath changed: {}", change);
+            for (ClasspathListener listener : LISTENERS) {
+                try {
+                    listener.changed(change);
+                } catch (RuntimeException ex) {
+                    LOG.warn("Error in classpath listener: {}", ex.getMessage(), ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Single-flight classpath scan: only one caller scans, others wait for its result.
+     *
+     * @param stale snapshot to be replaced, scan is skipped, when it's already replaced
+     */
+    private static ClasspathSnapshot scan(String classPath, String loaderPath, ClasspathSnapshot stale) {
+        while (true) {
+            CompletableFuture<ClasspathSnapshot> future;
+            boolean owner = false;
+            synchronized (SNAPSHOT_LOCK) {
+                ClasspathSnapshot current = SNAPSHOT;
+                if (current != null && current != stale && current.matches(classPath, loaderPath)) {
+                    return current;
+                }
+                future = SCAN_IN_FLIGHT;
+                if (future == null) {
+                    future = new CompletableFuture<>();
+                    SCAN_IN_FLIGHT = future;
+                    owner = true;
+                }
+            }
+            if (owner) {
+                try {
+                    ClasspathSnapshot snapshot = buildSnapshot(classPath, loaderPath);
+                    SNAPSHOT = snapshot;
+                    future.complete(snapshot);
+                    return snapshot;
+                } catch (RuntimeException | Error ex) {
+                    future.completeExceptionally(ex);
+                    throw ex;
+                } finally {
+                    List<Map<String, UnaryOperator<List<String>>>> pending;
+                    synchronized (SNAPSHOT_LOCK) {
+                        SCAN_IN_FLIGHT = null;
+                        pending = new ArrayList<>(PENDING_CHANGES);
+                        PENDING_CHANGES.clear();
+                    }
+                    for (Map<String, UnaryOperator<List<String>>> updates : pending) {
+                        applyChanges(updates);
                     }
-                } else {
-                    CLASSPATH_RESOURCES = null;
                 }
             }
+            ClasspathSnapshot snapshot = future.join();
+            if (snapshot.matches(classPath, loaderPath)) {
+                return snapshot;
+            }
+            // in-flight scan was for other class path
+            stale = snapshot;
         }
+    }
 
-        CLASSPATH_RESOURCES = new HashMap<>();
-        CLASS_PATH = classPath;
-        LOADER_PATH = loaderPath;
+    private static ClasspathSnapshot buildSnapshot(String classPath, String loaderPath) {
+        List<String> entries = getClasspathEntries(classPath, loaderPath);
+        // before scan, so changes during scan are detected next time
+        long scanTime = System.currentTimeMillis();
+        long fingerprint = ClasspathSnapshot.entriesFingerprint(entries);
+        Map<String, Duration> timings = new ConcurrentHashMap<>();
+        Path indexFile = INDEX_FILE;
+        Map<String, List<String>> loaded = indexFile == null
+                ? loadAll(entries, EXECUTOR, timings)
+                : loadIndexed(entries, indexFile, timings);
+        // cached for all JVM life, so keep it compact
+        Map<String, List<String>> resources = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : loaded.entrySet()) {
+            resources.put(entry.getKey(), CompactStringList.of(entry.getValue()));
+        }
 
-        // read entries from system classpath
+        Map<String, Duration> orderedTimings = new LinkedHashMap<>();
+        for (String entry : entries) {
+            Duration time = timings.get(entry);
+            if (time != null) {
+                orderedTimings.put(entry, time);
+            }
+        }
+        return new ClasspathSnapshot(VERSION.incrementAndGet(), classPath, loaderPath, scanTime, fingerprint,
+                Collections.unmodifiableMap(resources), Collections.unmodifiableMap(orderedTimings));
+    }
 
+    /**
+     * Split class path (system and Spring) to the list of entries.
+     *
+     * @param classPath  system class path (java.class.path), could be null
+     * @param loaderPath Spring class path (loader.path), could be null
+     * @return list of classpath entries
+     */
+    static List<String> getClasspathEntries(String classPath, String loaderPath) {
+        List<String> entries = new ArrayList<>();
+        // read entries from system classpath
         if (classPath != null && !classPath.isEmpty()) {
             String pathSeparator = System.getProperty("path.separator");
-            String[] classPathArray = StringUtils.split(classPath, pathSeparator);
-            for (String entry : classPathArray) {
-                Map<String, List<String>> resources = load(entry);
-                CLASSPATH_RESOURCES.putAll(resources);
-            }
+            Collections.addAll(entries, StringUtils.split(classPath, pathSeparator));
         }
-
         // Spring classpath
         if (loaderPath != null && !loaderPath.isEmpty()) {
-            String[] classPathArray = StringUtils.split(loaderPath, ",");
-            for (String entry : classPathArray) {
-                Map<String, List<String>> resources = load(entry);
-                CLASSPATH_RESOURCES.putAll(resources);
+            Collections.addAll(entries, StringUtils.split(loaderPath, ","));
+        }
+        return entries;
+    }
+
+    /**
+     * Load resources from all given paths. See {@link #load(String)}.
+     *
+     * <p>
+     * When executor is given, paths are loaded concurrently. Result order is always the same as
+     * paths order.
+     *
+     * @param paths    resource container locations
+     * @param executor executor for concurrent load, null - sequential load
+     * @param timings  map for collect load time of every path, could be null
+     * @return Map of classpath entry -> resource list
+     */
+    public static Map<String, List<String>> loadAll(
+            List<String> paths, Executor executor, Map<String, Duration> timings) {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (Map<String, List<String>> resources : loadEach(paths, executor, timings, null, null).values()) {
+            result.putAll(resources);
+        }
+        return result;
+    }
+
+    /**
+     * Load resources from every given path separately.
+     *
+     * <p>
+     * Manifest Class-Path graph of all paths is resolved once: every classpath entry (given or
+     * linked) is scanned at most once, link cycles are ignored. Graph is scanned level by level, all
+     * entries of level are scanned concurrently (when executor is given).
+     *
+     * @param paths    resource container locations
+     * @param executor executor for concurrent load, null - sequential load
+     * @param timings  map for collect load time of every path, could be null
+     * @param filter   resource filter, null - all resources
+     * @param stamps   map for collect file attributes of every entry, taken before its scan (see
+     *                 {@link ClasspathIndex#stamp(String, Map)}), could be null
+     * @return Map of path -> load result of this path (with linked entries), in paths order
+     */
+    private static Map<String, Map<String, List<String>>> loadEach(List<String> paths, Executor executor,
+            Map<String, Duration> timings, ResourceFilter filter, Map<File, ClasspathIndex.Stamp> stamps) {
+        Map<String, ClasspathNode> nodes = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        List<String> level = new ArrayList<>();
+        for (String path : paths) {
+            if (seen.add(nodeKey(path))) {
+                level.add(path);
+            }
+        }
+        while (!level.isEmpty()) {
+            List<ClasspathNode> loaded = loadLevel(level, executor, timings, filter, stamps);
+            List<String> next = new ArrayList<>();
+            for (int i = 0; i < level.size(); i++) {
+                ClasspathNode node = loaded.get(i);
+                nodes.put(nodeKey(level.get(i)), node);
+                for (String link : node.links) {
+                    if (seen.add(nodeKey(link))) {
+                        next.add(link);
+                    }
+                }
+            }
+            level = next;
+        }
+        Map<String, Map<String, List<String>>> result = new LinkedHashMap<>();
+        for (String path : paths) {
+            Map<String, List<String>> resources = new LinkedHashMap<>();
+            collectNode(path, nodes, resources, new HashSet<>());
+            result.put(path, resources);
+        }
+        return result;
+    }
+
+    private static List<ClasspathNode> loadLevel(List<String> paths, Executor executor,
+            Map<String, Duration> timings, ResourceFilter filter, Map<File, ClasspathIndex.Stamp> stamps) {
+        List<ClasspathNode> result = new ArrayList<>(paths.size());
+        if (executor == null || paths.size() == 1) {
+            for (String path : paths) {
+                result.add(timedLoad(path, timings, filter, stamps));
+            }
+        } else {
+            List<CompletableFuture<ClasspathNode>> futures = new ArrayList<>(paths.size());
+            for (String path : paths) {
+                futures.add(CompletableFuture.supplyAsync(
+                        () -> timedLoad(path, timings, filter, stamps), executor));
+            }
+            for (CompletableFuture<ClasspathNode> future : futures) {
+                result.add(future.join());
+            }
+        }
+        return result;
+    }
+
+    /** Collect resources of entry and its linked entries, in class loader order (depth first). */
+    private static void collectNode(String path, Map<String, ClasspathNode> nodes,
+            Map<String, List<String>> resources, Set<String> visited) {
+        String key = nodeKey(path);
+        if (!visited.add(key)) {
+            return;
+        }
+        ClasspathNode node = nodes.get(key);
+        resources.putAll(node.resources);
+        for (String link : node.links) {
+            collectNode(link, nodes, resources, visited);
+        }
+    }
+
+    /** Unique key of classpath entry: normalized absolute path. */
+    private static String nodeKey(String path) {
+        if (ArchiveContainer.isNested(path)) {
+            return path;
+        }
+        try {
+            return Path.of(path).toAbsolutePath().normalize().toString();
+        } catch (InvalidPathException ex) {
+            return path;
+        }
+    }
+
+    /**
+     * Load resources from given paths, using persistent index. Only changed (or not indexed)
+     * entries are scanned, index is rewritten, when archive entries were added, replaced or removed
+     * (directories are always scanned and never indexed).
+     */
+    private static Map<String, List<String>> loadIndexed(
+            List<String> paths, Path indexFile, Map<String, Duration> timings) {
+        ClasspathIndex index = ClasspathIndex.read(indexFile);
+        Map<String, Map<String, List<String>>> indexed = new HashMap<>();
+        List<String> changed = new ArrayList<>();
+        for (String path : paths) {
+            Map<String, List<String>> resources = index.get(path);
+            if (resources == null) {
+                changed.add(path);
+            } else {
+                indexed.put(path, resources);
+            }
+        }
+        LOG.debug("Index: [{}] entries unchanged, [{}] entries to scan", indexed.size(), changed.size());
+        Map<File, ClasspathIndex.Stamp> stamps = new ConcurrentHashMap<>();
+        Map<String, Map<String, List<String>>> scanned = loadEach(changed, EXECUTOR, timings, null, stamps);
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        boolean modified = index.retain(paths);
+        for (String path : paths) {
+            Map<String, List<String>> resources = indexed.get(path);
+            if (resources == null) {
+                resources = scanned.get(path);
+                modified |= index.put(path, resources, stamps);
+            }
+            result.putAll(resources);
+        }
+        if (modified) {
+            index.write(indexFile);
+        }
+        return result;
+    }
+
+    private static ClasspathNode timedLoad(String path, Map<String, Duration> timings, ResourceFilter filter,
+            Map<File, ClasspathIndex.Stamp> stamps) {
+        if (stamps != null) {
+            // before scan, so entry, replaced during scan, is not indexed as not changed
+            ClasspathIndex.stamp(path, stamps);
+        }
+        long start = System.nanoTime();
+        ClasspathNode node;
+        if (!ArchiveContainer.isNested(path) && path.endsWith(JAR_EXT)) {
+            node = loadJarNode(path, filter);
+        } else {
+            node = new ClasspathNode(load(path, filter), List.of());
+        }
+        if (timings != null) {
+            timings.put(path, Duration.ofNanos(System.nanoTime() - start));
+        }
+        return node;
+    }
+
+    /**
+     * Load list of all resources, visible from given class loader.
+     *
+     * <p>
+     * Loader chain is processed from top parent: system (application) class loader gives
+     * {@link #loadFromClasspath()} resources, {@link URLClassLoader} gives resources of its URLs
+     * (only "file:" URLs are supported), other loaders are skipped. Resources of every URLClassLoader
+     * are cached while loader is alive, so loaders with same parent share parent resources.
+     *
+     * @param classLoader class loader, null - system class loader
+     * @return Map of classpath entry -> resource list, parent entries first
+     */
+    public static Map<String, List<String>> loadFromClassLoader(ClassLoader classLoader) {
+        ClassLoader systemLoader = ClassLoader.getSystemClassLoader();
+        List<ClassLoader> chain = new ArrayList<>();
+        for (ClassLoader loader = classLoader == null ? systemLoader : classLoader; loader != null;
+                loader = loader.getParent()) {
+            chain.add(0, loader);
+        }
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (ClassLoader loader : chain) {
+            if (loader == systemLoader) {
+                putAllAbsent(result, loadFromClasspath());
+            } else if (loader instanceof URLClassLoader) {
+                putAllAbsent(result, loadFromUrls((URLClassLoader) loader));
+            } else {
+                LOG.debug("Class loader [{}] is not supported, skipped", loader);
+            }
+        }
+        return result;
+    }
+
+    private static void putAllAbsent(Map<String, List<String>> target, Map<String, List<String>> source) {
+        for (Map.Entry<String, List<String>> entry : source.entrySet()) {
+            target.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static Map<String, List<String>> loadFromUrls(URLClassLoader loader) {
+        Map<String, List<String>> result;
+        synchronized (LOADER_RESOURCES) {
+            result = LOADER_RESOURCES.get(loader);
+        }
+        if (result != null) {
+            return result;
+        }
+        List<String> paths = new ArrayList<>();
+        for (URL url : loader.getURLs()) {
+            if (!"file".equals(url.getProtocol())) {
+                LOG.warn("Protocol [{}] for url [{}] not supported", url.getProtocol(), url);
+                continue;
+            }
+            try {
+                paths.add(Path.of(url.toURI()).toString());
+            } catch (URISyntaxException | IllegalArgumentException ex) {
+                LOG.warn("Wrong url [{}]: {}", url, ex.getMessage());
             }
         }
+        Map<String, List<String>> loaded = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : loadAll(paths, EXECUTOR, null).entrySet()) {
+            loaded.put(entry.getKey(), CompactStringList.of(entry.getValue()));
+        }
+        synchronized (LOADER_RESOURCES) {
+            result = LOADER_RESOURCES.putIfAbsent(loader, Collections.unmodifiableMap(loaded));
+            return result != null ? result : LOADER_RESOURCES.get(loader);
+        }
+    }
 
-        return CLASSPATH_RESOURCES;
+    /**
+     * Load resources of all modules from boot layer (see {@link #loadFromModules(ModuleLayer)}).
+     *
+     * @return Map of module name -> resource list
+     */
+    public static Map<String, List<String>> loadFromModulePath() {
+        return loadFromModules(ModuleLayer.boot());
     }
 
     /**
-     * Extract list of resources from given path. Supported JAR, ZIP and directory as resource container.
+     * Load resources of all modules from given layer and its parent layers. Every layer is read once
+     * and cached while layer is alive. Modules are read concurrently, when parallel scanning is on
+     * (see {@link #setParallel(boolean)}). JDK modules (from "jrt:/" image) are included only when
+     * {@link #setSystemModules(boolean)} is on.
+     *
+     * @param layer module layer, e.g. {@link ModuleLayer#boot()} or custom layer
+     * @return Map of module name -> resource list, modules of given layer first, then modules of
+     *         parents
+     */
+    public static Map<String, List<String>> loadFromModules(ModuleLayer layer) {
+        Set<ModuleLayer> layers = new LinkedHashSet<>();
+        collectLayers(layer, layers);
+        boolean systemModules = SYSTEM_MODULES;
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (ModuleLayer item : layers) {
+            for (Map.Entry<String, List<String>> entry : loadLayer(item, systemModules).entrySet()) {
+                result.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private static void collectLayers(ModuleLayer layer, Set<ModuleLayer> layers) {
+        if (layers.add(layer)) {
+            for (ModuleLayer parent : layer.parents()) {
+                collectLayers(parent, layers);
+            }
+        }
+    }
+
+    private static Map<String, List<String>> loadLayer(ModuleLayer layer, boolean systemModules) {
+        Map<String, List<String>> cached;
+        synchronized (LAYER_RESOURCES) {
+            cached = LAYER_RESOURCES.computeIfAbsent(layer, key -> new ConcurrentHashMap<>());
+        }
+        List<ResolvedModule> modules = new ArrayList<>();
+        for (ResolvedModule module : layer.configuration().modules()) {
+            if (systemModules || !isSystemModule(module)) {
+                modules.add(module);
+            }
+        }
+        modules.sort(Comparator.comparing(ResolvedModule::name));
+        List<ResolvedModule> missing = new ArrayList<>();
+        for (ResolvedModule module : modules) {
+            if (!cached.containsKey(module.name())) {
+                missing.add(module);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Executor executor = EXECUTOR;
+            if (executor == null) {
+                for (ResolvedModule module : missing) {
+                    cached.putIfAbsent(module.name(), loadModule(module));
+                }
+            } else {
+                List<CompletableFuture<List<String>>> futures = new ArrayList<>(missing.size());
+                for (ResolvedModule module : missing) {
+                    futures.add(CompletableFuture.supplyAsync(() -> loadModule(module), executor));
+                }
+                for (int i = 0; i < missing.size(); i++) {
+                    cached.putIfAbsent(missing.get(i).name(), futures.get(i).join());
+                }
+            }
+        }
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (ResolvedModule module : modules) {
+            result.put(module.name(), cached.get(module.name()));
+        }
+        return result;
+    }
+
+    private static boolean isSystemModule(ResolvedModule module) {
+        return module.reference().location().map(uri -> JRT_SCHEME.equals(uri.getScheme())).orElse(false);
+    }
+
+    /**
+     * Gets resource names of module.
+     *
+     * @param module resolved module
+     * @return list of resource names
+     */
+    private static List<String> loadModule(ResolvedModule module) {
+        LOG.debug("Process module: [{}]", module.name());
+        try (ModuleReader reader = module.reference().open(); Stream<String> names = reader.list()) {
+            List<String> result = names.filter(name -> !name.endsWith("/")).collect(Collectors.toList());
+            LOG.debug("Module [{}] processed, [{}] items", module.name(), result.size());
+            return CompactStringList.of(result);
+        } catch (IOException ex) {
+            LOG.error("Error on load content from module: [{}]: {}", module.name(), ex.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Load resources of all modules from runtime image ("jrt:/" file system), including modules,
+     * which are not resolved in boot layer. Result is cached.
+     *
+     * @return Map of module name -> resource list, empty when runtime has no image
+     */
+    public static Map<String, List<String>> loadFromJrt() {
+        Map<String, List<String>> result = JRT_RESOURCES;
+        if (result != null) {
+            return result;
+        }
+        synchronized (ResourceLoader.class) {
+            if (JRT_RESOURCES == null) {
+                JRT_RESOURCES = Collections.unmodifiableMap(loadJrt());
+            }
+            return JRT_RESOURCES;
+        }
+    }
+
+    private static Map<String, List<String>> loadJrt() {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        Path modulesDir;
+        try {
+            modulesDir = FileSystems.getFileSystem(URI.create(JRT_SCHEME + ":/")).getPath("modules");
+        } catch (FileSystemNotFoundException | ProviderNotFoundException ex) {
+            LOG.warn("Runtime image not available: {}", ex.getMessage());
+            return result;
+        }
+        List<Path> moduleDirs = new ArrayList<>();
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(modulesDir)) {
+            dirs.forEach(moduleDirs::add);
+        } catch (IOException ex) {
+            LOG.error("Error on load modules from runtime image: {}", ex.getMessage());
+            return result;
+        }
+        moduleDirs.sort(Comparator.comparing(dir -> dir.getFileName().toString()));
+        ForkJoinPool pool = getForkJoinPool();
+        for (Path dir : moduleDirs) {
+            List<String> names = DirectoryScanner.scan(dir, MAX_DEPTH, pool);
+            result.put(dir.getFileName().toString(), CompactStringList.of(names));
+        }
+        return result;
+    }
+
+    /**
+     * Lazy stream of all resources from classpath (see {@link #loadFromClasspath()}), accepted by
+     * filter.
+     *
+     * <p>
+     * Nothing is cached: every classpath entry is opened, when stream reaches it, so short-circuit
+     * operations (e.g. findFirst) stop scanning.
+     *
+     * @param filter resource filter
+     * @return stream of resources, in classpath order
+     */
+    public static Stream<ResourceEntry> stream(ResourceFilter filter) {
+        String classPath = System.getProperty("java.class.path");
+        String loaderPath = System.getProperty("loader.path");
+        return stream(getClasspathEntries(classPath, loaderPath), filter);
+    }
+
+    /**
+     * Lazy stream of resources from given paths (see {@link #load(String)}), accepted by filter.
+     *
+     * @param paths  resource container locations
+     * @param filter resource filter
+     * @return stream of resources, in paths order
+     */
+    public static Stream<ResourceEntry> stream(List<String> paths, ResourceFilter filter) {
+        Set<String> visited = ConcurrentHashMap.newKeySet();
+        return paths.stream().flatMap(path -> streamPath(path, filter, visited));
+    }
+
+    private static Stream<ResourceEntry> streamPath(String path, ResourceFilter filter, Set<String> visited) {
+        if (!visited.add(path)) {
+            return Stream.empty();
+        }
+        if (!ArchiveContainer.isNested(path) && !path.endsWith(JAR_EXT) && !path.endsWith(ZIP_EXT)) {
+            return streamDirectory(path, filter);
+        }
+        ArchiveContainer container;
+        try {
+            container = ArchiveContainer.open(path);
+        } catch (IOException ex) {
+            LOG.error("Error on load content from [{}]: {}", path, ex.getMessage());
+            return Stream.empty();
+        }
+        if (container == null) {
+            LOG.warn("Path [{}] not found or it's not archive", path);
+            return Stream.empty();
+        }
+        ZipDirectory zip = container.getArchive();
+        Stream<ResourceEntry> own = container.entries(filter)
+                .mapToObj(i -> new ResourceEntry(path, container.getResourceName(i)));
+        if (ArchiveContainer.isNested(path) || !path.endsWith(JAR_EXT)) {
+            return own;
+        }
+        Stream<ResourceEntry> linked = Stream.of(zip).flatMap(it -> {
+            List<String> classPath;
+            try {
+                int manifestEntry = zip.find(JarFile.MANIFEST_NAME);
+                classPath = manifestEntry < 0
+                        ? List.of()
+                        : getManifestClassPath(path,
+                                new Manifest(new ByteArrayInputStream(toBytes(zip.read(manifestEntry)))));
+            } catch (IOException ex) {
+                LOG.error("Error on read manifest from JAR: [{}]: {}", path, ex.getMessage());
+                classPath = List.of();
+            }
+            return Stream.concat(streamFatJar(zip, filter), classPath.stream()
+                    .flatMap(subPath -> streamPath(subPath, filter, visited)));
+        });
+        return Stream.concat(own, linked);
+    }
+
+    /** Lazy stream of resources, nested in Spring Boot fat JAR/WAR. */
+    private static Stream<ResourceEntry> streamFatJar(ZipDirectory zip, ResourceFilter filter) {
+        byte[] jarExt = JAR_EXT.getBytes(StandardCharsets.UTF_8);
+        Stream<ResourceEntry> classes = NESTED_CLASS_DIRS.stream().flatMap(dir -> {
+            String location = zip.getLocation() + ArchiveContainer.SEPARATOR + dir;
+            ArchiveContainer container = ArchiveContainer.of(zip, dir);
+            return container.entries(filter).mapToObj(i -> new ResourceEntry(location, container.getResourceName(i)));
+        });
+        Stream<ResourceEntry> libs = NESTED_LIB_DIRS.stream().flatMap(dir -> {
+            byte[] prefix = dir.getBytes(StandardCharsets.UTF_8);
+            return IntStream.range(0, zip.size())
+                    .filter(i -> zip.nameStartsWith(i, prefix) && zip.nameEndsWith(i, jarExt))
+                    .boxed()
+                    .flatMap(i -> {
+                        ZipDirectory nested;
+                        try {
+                            nested = ArchiveContainer.openNested(zip, i);
+                        } catch (IOException ex) {
+                            LOG.warn("Error on load nested JAR: {}", ex.getMessage());
+                            return Stream.empty();
+                        }
+                        ArchiveContainer container = ArchiveContainer.of(nested, "");
+                        return container.entries(filter)
+                                .mapToObj(j -> new ResourceEntry(nested.getLocation(), container.getResourceName(j)));
+                    });
+        });
+        return Stream.concat(classes, libs);
+    }
+
+    private static Stream<ResourceEntry> streamDirectory(String path, ResourceFilter filter) {
+        Path dir = Path.of(path);
+        if (!Files.isDirectory(dir)) {
+            LOG.warn("Path [{}] not found or it's not directory", path);
+            return Stream.empty();
+        }
+        return DirectoryScanner.stream(dir, MAX_DEPTH, filter)
+                .map(name -> new ResourceEntry(path, name));
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Extract list of resources from given path. Supported JAR, ZIP, directory and nested archive
+     * location (e.g. "app.jar!/BOOT-INF/lib/lib.jar") as resource container.
      *
      * @param path resource container location
      * @return list of all container resources
      */
     public static Map<String, List<String>> load(String path) {
-        if (path.endsWith(".jar")) {
-            return loadJar(path);
-        } else if (path.endsWith(".zip")) {
-            return Map.of(path, loadZip(path));
+        return load(path, null);
+    }
+
+    /**
+     * Load resources from given path, accepted by filter. Filter is applied while scanning: not
+     * accepted archive entries are skipped by raw name (names aren't decoded), directory subtrees,
+     * which can't contain accepted resources, aren't walked (see
+     * {@link ResourceFilter#acceptDirectory(String)}).
+     *
+     * <p>
+     * Result isn't cached, so it's intended for ad-hoc lookups, e.g. all "*.sql" files under
+     * "db/migration/".
+     *
+     * @param path   path to resources (JAR, ZIP, nested location or directory)
+     * @param filter resource filter, null - all resources
+     * @return list of accepted container resources
+     */
+    public static Map<String, List<String>> load(String path, ResourceFilter filter) {
+        if (ArchiveContainer.isNested(path)) {
+            return Map.of(path, loadNested(path, filter));
+        } else if (path.endsWith(JAR_EXT)) {
+            return loadJar(path, filter);
+        } else if (path.endsWith(ZIP_EXT)) {
+            return Map.of(path, loadZip(path, filter));
         } else {
-            return Map.of(path, loadDirectory(path));
+            return Map.of(path, loadDirectory(path, filter));
             // } else {
             // LOG.error("Protocol [{}] for url [{}] not supported", url.getProtocol(), url);
             // return new ArrayList<>();
@@ -111,18 +1016,32 @@ public class ResourceLoader {
     }
 
     /**
-     * Gets resource names from directory.
+     * Gets resource names from directory. Symbolic links are followed (link loops are skipped), walk
+     * depth is limited by {@link #setMaxDepth(int)}. When parallel scanning is on, subdirectories are
+     * walked concurrently in fork-join pool.
      *
      * @param path path to resources
      * @return list of resource names
      */
     public static List<String> loadDirectory(String path) {
-        // Get a File object for the package
-        File directory = new File(path);
+        return loadDirectory(path, null);
+    }
+
+    /**
+     * Gets resource names from directory, accepted by filter (see
+     * {@link #load(String, ResourceFilter)}).
+     *
+     * @param path   path to resources
+     * @param filter resource filter, null - all resources
+     * @return list of resource names
+     */
+    public static List<String> loadDirectory(String path, ResourceFilter filter) {
+        Path directory = Path.of(path);
         LOG.debug("Process directory: [{}]", path);
         List<String> result;
-        if (directory.exists()) {
-            result = loadDirectory(directory, new ArrayList<>(), "");
+        if (Files.isDirectory(directory)) {
+            result = DirectoryScanner.scan(directory, MAX_DEPTH, getForkJoinPool(),
+                    filter == null ? ResourceFilter.all() : filter);
         } else {
             LOG.warn("Path [{}] not found or it's not directory", path);
             result = new ArrayList<>();
@@ -131,63 +1050,46 @@ public class ResourceLoader {
         return result;
     }
 
-    private static List<String> loadDirectory(File directory, List<String> content, String baseDir) {
-        File[] fileList = directory.listFiles();
-        if (fileList != null) {
-            for (File file : fileList) {
-                if (file.isFile()) {
-                    content.add(baseDir + file.getName());
-                } else if (file.isDirectory()) {
-                    loadDirectory(file, content, baseDir + file.getName() + "/");
-                } else {
-                    LOG.info("Ignore [{}] because of unsupported type", directory.getPath());
-                }
-            }
-        }
-        return content;
-    }
-
     /**
-     * Load resources from JAR.
+     * Load resources from JAR, with all entries from manifest Class-Path (transitively, every entry
+     * once).
      *
      * @param path JAR file name
      * @return List of resource names
      */
     public static Map<String, List<String>> loadJar(String path) {
+        return loadJar(path, null);
+    }
+
+    /**
+     * Load resources from JAR, with all entries from manifest Class-Path, accepted by filter (see
+     * {@link #load(String, ResourceFilter)}).
+     *
+     * @param path   JAR file name
+     * @param filter resource filter, null - all resources
+     * @return List of resource names
+     */
+    public static Map<String, List<String>> loadJar(String path, ResourceFilter filter) {
+        return loadEach(List.of(path), EXECUTOR, null, filter, null).get(path);
+    }
+
+    /** Load resources from JAR itself (with nested archives), links are manifest Class-Path entries. */
+    private static ClasspathNode loadJarNode(String path, ResourceFilter filter) {
         // It does not work with the filesystem: we must
         // be in the case of a package contained in a jar file.
         LOG.debug("Process JAR: [{}]", path);
-        Map<String, List<String>> result = new HashMap<>();
+        Map<String, List<String>> result = new LinkedHashMap<>();
         List<String> items = new ArrayList<>();
         result.put(path, items);
-        try (JarFile jarFile = new JarFile(path)) {
-            Enumeration<JarEntry> e = jarFile.entries();
-            while (e.hasMoreElements()) {
-                JarEntry entry = e.nextElement();
-                if (!entry.isDirectory()) {
-                    String entryname = entry.getName();
-                    items.add(entryname);
-                }
-            }
-// check classpath in manifest.mf
-            Manifest manifest = jarFile.getManifest();
-            if (manifest != null) {
-                String classPath = manifest.getMainAttributes().getValue("Class-Path");
-                if (classPath != null) {
-                    for (String subPath : StringUtils.split(classPath, ' ')) {
-                        try {
-                            URI uri = new URI(subPath);
-                            String fileName = uri.toURL().getFile();
-                            Map<String, List<String>> subData = load(fileName);
-                            result.putAll(subData);
-                        } catch (Exception ex) {
-                            LOG.error("Manifest: error on load content from JAR: [{}]: {}", subPath, ex.getMessage());
-                        }
-                    }
-                }
-            }
+        Manifest manifest;
+        try {
+            ZipDirectory zip = ZipDirectory.open(Path.of(path));
+            manifest = readJar(zip, items, filter);
+            loadFatJar(zip, result, filter);
         } catch (IOException ex) {
-            LOG.error("Error on load content from JAR: [{}]", path, ex);
+            LOG.debug("JAR [{}] can't be read directly ({}), use JarFile", path, ex.getMessage());
+            items.clear();
+            manifest = readJarFile(path, items, filter);
         }
         if (LOG.isDebugEnabled()) {
             Map<String, Integer> resultInfo = result.entrySet()
@@ -195,9 +1097,155 @@ public class ResourceLoader {
                     .collect(Collectors.toMap(it -> it.getKey(), it -> it.getValue().size()));
             LOG.debug("JAR [{}] processed, items: [{}]", path, resultInfo);
         }
+        // check classpath in manifest.mf
+        return new ClasspathNode(result, getManifestClassPath(path, manifest));
+    }
+
+    /**
+     * Gets locations of additional classpath entries from JAR manifest (Class-Path attribute).
+     * Relative URLs are resolved against JAR directory.
+     */
+    private static List<String> getManifestClassPath(String jarPath, Manifest manifest) {
+        List<String> result = new ArrayList<>();
+        if (manifest == null) {
+            return result;
+        }
+        String classPath = manifest.getMainAttributes().getValue("Class-Path");
+        if (classPath != null) {
+            Path parent = Path.of(jarPath).toAbsolutePath().getParent();
+            URI base = parent.toUri();
+            for (String subPath : StringUtils.split(classPath, ' ')) {
+                try {
+                    URI uri = base.resolve(new URI(subPath));
+                    if (!"file".equals(uri.getScheme())) {
+                        LOG.warn("Manifest: protocol [{}] for url [{}] not supported", uri.getScheme(), subPath);
+                        continue;
+                    }
+                    result.add(Path.of(uri).normalize().toString());
+                } catch (URISyntaxException | IllegalArgumentException ex) {
+                    LOG.error("Manifest: error on load content from JAR: [{}]: {}", subPath, ex.getMessage());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read resource names from JAR central directory.
+     *
+     * @return JAR manifest or null, when JAR has no manifest
+     */
+    private static Manifest readJar(ZipDirectory zip, List<String> items, ResourceFilter filter) throws IOException {
+        PrecomputedIndex index = PrecomputedIndex.read(zip);
+        int manifestEntry = zip.find(JarFile.MANIFEST_NAME);
+        if (index != null) {
+            LOG.debug("JAR [{}]: use precomputed index", zip.getLocation());
+            items.addAll(index.getResources());
+            if (manifestEntry >= 0 && !items.contains(JarFile.MANIFEST_NAME)) {
+                items.add(0, JarFile.MANIFEST_NAME);
+            }
+        } else {
+            // multi-release JAR is listed by logical names
+            items.addAll(ArchiveContainer.of(zip, "").getNames(filter));
+        }
+        Manifest manifest = manifestEntry < 0
+                ? null
+                : new Manifest(new ByteArrayInputStream(toBytes(zip.read(manifestEntry))));
+        if (index != null && MultiRelease.isMultiRelease(manifest)) {
+            List<String> resolved = MultiRelease.resolve(items, MultiRelease.RUNTIME_RELEASE);
+            items.clear();
+            items.addAll(resolved);
+        }
+        if (index != null && filter != null) {
+            items.removeIf(name -> !filter.accept(name));
+        }
+        return manifest;
+    }
+
+    /**
+     * Load content of Spring Boot fat JAR/WAR: every nested library and classes directory is
+     * reported as separate classpath entry (e.g. "app.jar!/BOOT-INF/lib/lib.jar",
+     * "app.jar!/BOOT-INF/classes/").
+     */
+    private static void loadFatJar(ZipDirectory zip, Map<String, List<String>> result, ResourceFilter filter) {
+        byte[] jarExt = JAR_EXT.getBytes(StandardCharsets.UTF_8);
+        for (String dir : NESTED_CLASS_DIRS) {
+            ArchiveContainer classes = ArchiveContainer.of(zip, dir);
+            List<String> names = classes.getNames(filter);
+            if (!names.isEmpty()) {
+                result.put(zip.getLocation() + ArchiveContainer.SEPARATOR + dir, names);
+            }
+        }
+        for (String dir : NESTED_LIB_DIRS) {
+            byte[] prefix = dir.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < zip.size(); i++) {
+                if (zip.nameStartsWith(i, prefix) && zip.nameEndsWith(i, jarExt)) {
+                    try {
+                        ZipDirectory nested = ArchiveContainer.openNested(zip, i);
+                        result.put(nested.getLocation(), ArchiveContainer.of(nested, "").getNames(filter));
+                    } catch (IOException ex) {
+                        LOG.warn("Error on load nested JAR: {}", ex.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Load resources from nested archive or directory inside archive.
+     *
+     * @param path nested location, e.g. "app.jar!/BOOT-INF/lib/lib.jar" or "app.jar!/BOOT-INF/classes/"
+     * @return List of resource names
+     */
+    public static List<String> loadNested(String path) {
+        return loadNested(path, null);
+    }
+
+    /**
+     * Load resources from nested archive or directory inside archive, accepted by filter (see
+     * {@link #load(String, ResourceFilter)}).
+     *
+     * @param path   nested location, e.g. "app.jar!/BOOT-INF/lib/lib.jar"
+     * @param filter resource filter, null - all resources
+     * @return List of resource names
+     */
+    public static List<String> loadNested(String path, ResourceFilter filter) {
+        LOG.debug("Process nested archive: [{}]", path);
+        List<String> result;
+        try {
+            ArchiveContainer container = ArchiveContainer.open(path);
+            if (container == null) {
+                LOG.warn("Archive for [{}] not found", path);
+                result = new ArrayList<>();
+            } else {
+                result = container.getNames(filter);
+            }
+        } catch (IOException ex) {
+            LOG.error("Error on load content from nested archive: [{}]: {}", path, ex.getMessage());
+            result = new ArrayList<>();
+        }
+        LOG.debug("Nested archive [{}] processed, items: [{}]", path, result.size());
         return result;
     }
 
+    /**
+     * Read resource names by {@link JarFile} (for archives, which can't be memory-mapped).
+     *
+     * @return JAR manifest or null, when JAR has no manifest
+     */
+    private static Manifest readJarFile(String path, List<String> items, ResourceFilter filter) {
+        try (JarFile jarFile = new JarFile(new File(path), true, ZipFile.OPEN_READ, Runtime.version())) {
+            // versioned stream gives logical names of multi-release JAR
+            jarFile.versionedStream()
+                    .filter(entry -> !entry.isDirectory() && (filter == null || filter.accept(entry.getName())))
+                    .forEach(entry -> items.add(entry.getName()));
+            return jarFile.getManifest();
+        } catch (IOException ex) {
+            LOG.error("Error on load content from JAR: [{}]", path, ex);
+            return null;
+        }
+    }
+
     /**
      * Load resources from ZIP.
      *
@@ -205,21 +1253,49 @@ public class ResourceLoader {
      * @return List of resource names
      */
     public static List<String> loadZip(String path) {
+        return loadZip(path, null);
+    }
+
+    /**
+     * Load resources from ZIP, accepted by filter (see {@link #load(String, ResourceFilter)}).
+     *
+     * @param path   ZIP file name
+     * @param filter resource filter, null - all resources
+     * @return List of resource names
+     */
+    public static List<String> loadZip(String path, ResourceFilter filter) {
         LOG.debug("Process ZIP: [{}]", path);
+        List<String> result;
+        try {
+            ZipDirectory zip = ZipDirectory.open(Path.of(path));
+            result = filter == null
+                    ? zip.getNames()
+                    : IntStream.range(0, zip.size())
+                            .filter(i -> !zip.isDirectory(i) && filter.accept(zip, i, 0))
+                            .mapToObj(zip::getName)
+                            .collect(Collectors.toList());
+        } catch (IOException ex) {
+            LOG.debug("ZIP [{}] can't be read directly ({}), use ZipFile", path, ex.getMessage());
+            result = readZipFile(path, filter);
+        }
+        LOG.debug("ZIP [{}] processed, items: [{}]", path, result.size());
+        return result;
+    }
+
+    private static List<String> readZipFile(String path, ResourceFilter filter) {
         List<String> result = new ArrayList<>();
         try (ZipFile zip = new ZipFile(path)) {
             Enumeration<? extends ZipEntry> entries = zip.entries();
             while (entries.hasMoreElements()) {
                 // LOG.trace("Process ZIP entry: {}", entry.getName());
                 ZipEntry entry = entries.nextElement();
-                if (!entry.isDirectory()) {
+                if (!entry.isDirectory() && (filter == null || filter.accept(entry.getName()))) {
                     result.add(entry.getName());
                 }
             }
         } catch (IOException ex) {
             LOG.error("Error on load content from ZIP: [{}]", path, ex);
         }
-        LOG.debug("ZIP [{}] processed, items: [{}]", path, result.size());
         return result;
     }
 
@@ -262,4 +1338,16 @@ public class ResourceLoader {
         return listFromClassLoader(classLoader, path);
     }
 
+    /** Loaded classpath entry. */
+    private static final class ClasspathNode {
+        /** Resources of entry (and of its nested archives). */
+        private final Map<String, List<String>> resources;
+        /** Linked classpath entries (from manifest Class-Path). */
+        private final List<String> links;
+
+        private ClasspathNode(Map<String, List<String>> resources, List<String> links) {
+            this.resources = resources;
+            this.links = links;
+        }
+    }
 }
@@ -1,10 +1,19 @@
 package dev.walgo.walib;
 
+import java.io.IOException;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,13 +31,19 @@ public class ResourceUtils {
     public static final String CLASS_EXT = ".class";
 
     private static final Logger LOG = LoggerFactory.getLogger(ResourceUtils.class);
-    private static final String REGEX_PATH_DELIMITER = "\\/";
     private static final int MODIFIER_MODULE = 0x8000;
+    private static final String META_INF = "META-INF/";
+    /** Glob of class resource name. */
+    static final ResourceGlob CLASS_GLOB = ResourceGlob.compile("**/*" + CLASS_EXT);
 
-    @SuppressWarnings("rawtypes")
-    private static final Map<String, Class> CLASS_WEAK_CACHE = new WeakHashMap<>();
+    /** Count of classes, loaded by one task of parallel class loading. */
+    private static final int LOAD_CHUNK_SIZE = 64;
+    private static final ClassCache CLASS_CACHE = new ClassCache(ClassCache.DEFAULT_NEGATIVE_TTL);
 
-    private static Map<String, List<String>> resourceCache;
+    /** Module layer -> index of its modules, see {@link #getModuleIndex(ModuleLayer)}. */
+    private static final Map<ModuleLayer, ResourceIndex> MODULE_INDEXES = new WeakHashMap<>();
+    /** Class loader -> index of resources visible from it, see {@link #getResourceIndex(ClassLoader)}. */
+    private static final Map<ClassLoader, ResourceIndex> LOADER_INDEXES = new WeakHashMap<>();
 
     private ResourceUtils() {
         // do nothing
@@ -40,42 +55,333 @@ public class ResourceUtils {
      * @return cached resources from class path
      */
     public static Map<String, List<String>> getResourcesFromClasspath() {
-        if (resourceCache == null) {
-            resourceCache = ResourceLoader.loadFromClasspath();
-        }
-        return resourceCache;
+        return ResourceLoader.loadFromClasspath();
     }
 
     /**
      * List resources with names corresponded to regex.
      *
+     * <p>
+     * Uses {@link #getResourceIndex()}. When regex is anchored to name start ("^my/package/...") only
+     * resources with its literal prefix are checked, otherwise all resources are checked, so
+     * {@link #findResourceFiles(ResourceGlob)} or {@link #findResourceFiles(String, String)} are
+     * preferable for frequent queries.
+     *
      * @param resourceRegex Regex for resource. E.g:<br>
      *                      ".*?\.class" - all classes,<br>
-     *                      "my\/package\/.*?\.class" - all classes from given package
-     * @return resource names
+     *                      "^my\/package\/.*?\.class" - all classes from given package
+     * @return resource names, in sorted order
      */
     public static List<String> findResourceFiles(String resourceRegex) {
-        Pattern pattern = resourceRegex == null || resourceRegex.isEmpty() ? null : Pattern.compile(resourceRegex);
-        Map<String, List<String>> localResources = ResourceLoader.loadFromClasspath();
+        if (resourceRegex == null || resourceRegex.isEmpty()) {
+            return getResourceIndex().findByPrefix(null);
+        }
+        Pattern pattern = Pattern.compile(resourceRegex);
         List<String> files = new ArrayList<>();
-        for (List<String> pathResources : localResources.values()) {
-            for (String resource : pathResources) {
-                if (pattern == null || pattern.matcher(resource).find()) {
-                    files.add(resource);
-                }
+        for (String resource : getResourceIndex().findByPrefix(literalPrefix(resourceRegex))) {
+            if (pattern.matcher(resource).find()) {
+                files.add(resource);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Gets literal prefix of regex, anchored to input start (e.g. "my/package/" for
+     * "^my\/package\/.*").
+     *
+     * @param regex regex
+     * @return prefix, empty string when regex is not anchored or starts with not literal
+     */
+    static String literalPrefix(String regex) {
+        if (!regex.startsWith("^") || regex.indexOf('|') >= 0) {
+            return "";
+        }
+        StringBuilder result = new StringBuilder();
+        int i = 1;
+        while (i < regex.length()) {
+            char ch = regex.charAt(i);
+            int next = i + 1;
+            if (ch == '\\' && next < regex.length() && !Character.isLetterOrDigit(regex.charAt(next))) {
+                ch = regex.charAt(next++);
+            } else if (!Character.isLetterOrDigit(ch) && ch != '/' && ch != '_' && ch != '-') {
+                break;
+            }
+            if (next < regex.length() && "*?+{".indexOf(regex.charAt(next)) >= 0) {
+                // char is quantified
+                break;
             }
+            result.append(ch);
+            i = next;
+        }
+        return result.toString();
+    }
+
+    /**
+     * List resources, accepted by filter. Classpath is scanned with filter (see
+     * {@link ResourceLoader#loadFromClasspath(ResourceFilter)}), so not accepted resources are
+     * skipped while scanning. Cache is not used.
+     *
+     * @param filter resource filter, e.g. {@code ResourceFilter.prefix("db/migration/")
+     *               .and(ResourceFilter.suffix(".sql"))}
+     * @return resource names, in classpath order
+     */
+    public static List<String> scanResourceFiles(ResourceFilter filter) {
+        List<String> files = new ArrayList<>();
+        for (List<String> pathResources : ResourceLoader.loadFromClasspath(filter).values()) {
+            files.addAll(pathResources);
         }
         return files;
     }
 
+    /**
+     * Find first resource with name corresponded to regex.
+     *
+     * <p>
+     * Classpath is scanned lazily (see {@link ResourceLoader#stream(ResourceFilter)}) and scan stops
+     * on first found resource. Cache is not used.
+     *
+     * @param resourceRegex Regex for resource (see {@link #findResourceFiles(String)})
+     * @return resource name
+     */
+    public static Optional<String> findFirstResourceFile(String resourceRegex) {
+        return ResourceLoader.stream(ResourceFilter.regex(resourceRegex)).map(ResourceEntry::getName).findFirst();
+    }
+
+    /**
+     * List resources with names, which match glob pattern (e.g. "com/acme/**&#47;*.class",
+     * "db/*.sql").
+     *
+     * <p>
+     * Uses {@link #getResourceIndex()}, so only resources with literal prefix of pattern are checked,
+     * regex isn't used.
+     *
+     * @param glob glob pattern (see {@link ResourceGlob#compile(String)})
+     * @return resource names, in sorted order
+     */
+    public static List<String> findResourceFiles(ResourceGlob glob) {
+        return getResourceIndex().find(glob);
+    }
+
+    /**
+     * Gets sorted index of classpath resources. Index is rebuilt, when classpath is changed.
+     *
+     * @return resource index
+     */
+    public static ResourceIndex getResourceIndex() {
+        return ResourceLoader.getSnapshot().getIndex();
+    }
+
+    /**
+     * List resources from given directory (package) with names corresponded to regex.
+     *
+     * <p>
+     * Uses {@link #getResourceIndex()}, so only resources from given directory are checked.
+     *
+     * @param prefix        resource name prefix, e.g. "my/package/", null or empty - all resources
+     * @param resourceRegex Regex for rest of resource name (after prefix), null or empty - all
+     *                      resources. E.g. ".*?\.class" - all classes
+     * @return resource names, in sorted order
+     */
+    public static List<String> findResourceFiles(String prefix, String resourceRegex) {
+        Pattern pattern = resourceRegex == null || resourceRegex.isEmpty() ? null : Pattern.compile(resourceRegex);
+        return getResourceIndex().find(prefix, pattern);
+    }
+
+    /**
+     * Read content of classpath resource (from first classpath entry, which contains it). See
+     * {@link ResourceContent}.
+     *
+     * @param name resource name, e.g. "my/package/file.txt"
+     * @return read-only buffer with content or null, when resource not found (or can't be read)
+     */
+    public static ByteBuffer getResourceContent(String name) {
+        ClasspathSnapshot snapshot = ResourceLoader.getSnapshot();
+        List<String> containers = snapshot.getIndex().getContainers(name);
+        if (containers.isEmpty()) {
+            return null;
+        }
+        try {
+            return snapshot.getContent().read(containers.get(0), name);
+        } catch (IOException ex) {
+            LOG.error("Error on read resource [{}] from [{}]: {}", name, containers.get(0), ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Read content of many classpath resources. Resources are grouped by classpath entry, every
+     * entry is read in one pass (see {@link ResourceContent#readAll(String, Collection)}).
+     *
+     * @param names resource names
+     * @return Map of resource name -> read-only buffer with content, in names order, not found (or
+     *         not readable) resources are absent
+     */
+    public static Map<String, ByteBuffer> getResourceContents(Collection<String> names) {
+        ClasspathSnapshot snapshot = ResourceLoader.getSnapshot();
+        ResourceIndex index = snapshot.getIndex();
+        Map<String, List<String>> byContainer = new LinkedHashMap<>();
+        for (String name : names) {
+            List<String> containers = index.getContainers(name);
+            if (!containers.isEmpty()) {
+                byContainer.computeIfAbsent(containers.get(0), key -> new ArrayList<>()).add(name);
+            }
+        }
+        Map<String, ByteBuffer> found = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : byContainer.entrySet()) {
+            try {
+                found.putAll(snapshot.getContent().readAll(entry.getKey(), entry.getValue()));
+            } catch (IOException ex) {
+                LOG.error("Error on read resources from [{}]: {}", entry.getKey(), ex.getMessage());
+            }
+        }
+        Map<String, ByteBuffer> result = new LinkedHashMap<>();
+        for (String name : names) {
+            ByteBuffer content = found.get(name);
+            if (content != null) {
+                result.put(name, content);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find classpath resources, which are contained in several classpath entries, and compare their
+     * content (see {@link ResourceDuplicates}). When parallel scanning is on (see
+     * {@link ResourceLoader#setParallel(boolean)}), content is compared concurrently.
+     *
+     * @param filter filter of resource names, e.g. {@code ResourceFilter.suffix(".class")} - only
+     *               classes
+     * @return report of duplicates and conflicts
+     */
+    public static ResourceDuplicates findDuplicateResources(ResourceFilter filter) {
+        ClasspathSnapshot snapshot = ResourceLoader.getSnapshot();
+        return ResourceDuplicates.analyze(snapshot.getIndex(), snapshot.getContent(), filter,
+                ResourceLoader.getExecutor());
+    }
+
+    /**
+     * Gets index of service providers, declared in "META-INF/services/" files of classpath (see
+     * {@link ServiceIndex}). Index is rebuilt, when classpath is changed. When parallel scanning is
+     * on (see {@link ResourceLoader#setParallel(boolean)}), service files are read concurrently.
+     *
+     * @return service index
+     */
+    public static ServiceIndex getServiceIndex() {
+        return ResourceLoader.getSnapshot().getServiceIndex();
+    }
+
+    /**
+     * Find names of provider classes of service, declared in "META-INF/services/" files of
+     * classpath. Classes are not loaded.
+     *
+     * @param service service class (interface or abstract class)
+     * @return provider class names in classpath order
+     */
+    public static List<String> findServiceProviders(Class<?> service) {
+        return getServiceIndex().getProviders(service);
+    }
+
+    /**
+     * Gets sorted index of resources, visible from given class loader (see
+     * {@link ResourceLoader#loadFromClassLoader(ClassLoader)}). Index is cached while loader is alive.
+     *
+     * @param classLoader class loader, null - system class loader
+     * @return resource index
+     */
+    public static ResourceIndex getResourceIndex(ClassLoader classLoader) {
+        Map<String, List<String>> resources = ResourceLoader.loadFromClassLoader(classLoader);
+        ClassLoader key = classLoader == null ? ClassLoader.getSystemClassLoader() : classLoader;
+        synchronized (LOADER_INDEXES) {
+            ResourceIndex index = LOADER_INDEXES.get(key);
+            // system classpath part could be changed
+            if (index == null || !index.getContainerNames().equals(new ArrayList<>(resources.keySet()))) {
+                index = ResourceIndex.of(resources);
+                LOADER_INDEXES.put(key, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * List resources, visible from given class loader, with names corresponded to regex.
+     *
+     * @param classLoader   class loader, null - system class loader
+     * @param prefix        resource name prefix, e.g. "my/package/", null or empty - all resources
+     * @param resourceRegex Regex for rest of resource name (after prefix), null or empty - all
+     *                      resources
+     * @return resource names, in sorted order
+     */
+    public static List<String> findResourceFiles(ClassLoader classLoader, String prefix, String resourceRegex) {
+        Pattern pattern = resourceRegex == null || resourceRegex.isEmpty() ? null : Pattern.compile(resourceRegex);
+        return getResourceIndex(classLoader).find(prefix, pattern);
+    }
+
+    /**
+     * Gets sorted index of module resources (see {@link ResourceLoader#loadFromModules(ModuleLayer)}).
+     * Index is cached while layer is alive.
+     *
+     * @param layer module layer, e.g. {@link ModuleLayer#boot()}
+     * @return resource index, containers are module names
+     */
+    public static ResourceIndex getModuleIndex(ModuleLayer layer) {
+        Map<String, List<String>> resources = ResourceLoader.loadFromModules(layer);
+        synchronized (MODULE_INDEXES) {
+            ResourceIndex index = MODULE_INDEXES.get(layer);
+            // set of scanned modules depends on ResourceLoader.setSystemModules
+            if (index == null || !index.getContainerNames().equals(new ArrayList<>(resources.keySet()))) {
+                index = ResourceIndex.of(resources);
+                MODULE_INDEXES.put(layer, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * List resources of given modules with names corresponded to regex.
+     *
+     * @param layer         module layer (with parents), e.g. {@link ModuleLayer#boot()}
+     * @param modules       module names, null - all modules of layer
+     * @param prefix        resource name prefix, e.g. "my/package/", null or empty - all resources
+     * @param resourceRegex Regex for rest of resource name (after prefix), null or empty - all
+     *                      resources
+     * @return resource names, in sorted order
+     */
+    public static List<String> findModuleResourceFiles(
+            ModuleLayer layer, Collection<String> modules, String prefix, String resourceRegex) {
+        Pattern pattern = resourceRegex == null || resourceRegex.isEmpty() ? null : Pattern.compile(resourceRegex);
+        return getModuleIndex(layer).find(prefix, pattern, modules);
+    }
+
     private static String classNameFromResource(String resourceName) {
-        if (!resourceName.endsWith(CLASS_EXT)) {
+        // META-INF content (e.g. versioned entries of multi-release JAR) is not loadable by name
+        if (!resourceName.endsWith(CLASS_EXT) || resourceName.startsWith(META_INF)) {
             return null;
         }
         String className = resourceName.replace('/', '.').substring(0, resourceName.length() - CLASS_EXT.length());
         return className;
     }
 
+    /**
+     * Subscribe to changes of classpath directories, detected by watcher (see
+     * {@link ResourceLoader#setWatching(boolean)}). Resource index and class hierarchy (see
+     * {@link #getResourceIndex()}) are already updated, when listener is called.
+     *
+     * @param listener listener
+     */
+    public static void addClasspathListener(ClasspathListener listener) {
+        ResourceLoader.addListener(listener);
+    }
+
+    /**
+     * Unsubscribe from changes of classpath directories.
+     *
+     * @param listener listener
+     */
+    public static void removeClasspathListener(ClasspathListener listener) {
+        ResourceLoader.removeListener(listener);
+    }
+
     /**
      * Gets class based on given class name.
      * 
@@ -85,17 +391,30 @@ public class ResourceUtils {
      * @return extracted class
      */
     public static Class<?> getClass(String className) {
-        if (CLASS_WEAK_CACHE.containsKey(className)) {
-            return CLASS_WEAK_CACHE.get(className);
-        }
-        try {
-            final Class<?> clazz = Class.forName(className);
-            CLASS_WEAK_CACHE.put(className, clazz);
-            return clazz;
-        } catch (Throwable ex) {
-            LOG.warn("Class not found: {} - {}", className, ex.getMessage());
-            return null;
-        }
+        return CLASS_CACHE.get(className, ResourceUtils.class.getClassLoader());
+    }
+
+    /**
+     * Gets class based on given class name, loaded by given class loader.
+     *
+     * <p>
+     * Use cached data (see {@link #getClassCache()})
+     *
+     * @param className   class name
+     * @param classLoader class loader
+     * @return extracted class or null, when not found
+     */
+    public static Class<?> getClass(String className, ClassLoader classLoader) {
+        return CLASS_CACHE.get(className, classLoader);
+    }
+
+    /**
+     * Gets cache of classes, loaded by {@link #getClass(String)} (e.g. to check hit/miss counters).
+     *
+     * @return class cache
+     */
+    public static ClassCache getClassCache() {
+        return CLASS_CACHE;
     }
 
     /**
@@ -121,19 +440,85 @@ public class ResourceUtils {
      * @param baseClass   - base class (interface) - only descendant classes will be returned.
      * @return list of found and loaded classes
      */
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     public static <T> List<Class<? extends T>> findClassesFromResources(
             String basePackage, Class<T> baseClass) {
+        List<String> resources = getResourceIndex().find(classGlob(basePackage));
+        return filterClasses(resources, baseClass, ResourceUtils.class.getClassLoader(), true);
+    }
+
+    /**
+     * Load all classes from resources, visible from given class loader (see
+     * {@link #getResourceIndex(ClassLoader)}). Classes are loaded by this class loader.
+     *
+     * @param <T>         base class type
+     * @param classLoader class loader, null - system class loader
+     * @param basePackage base package for classes - optional
+     * @param baseClass   - base class (interface) - only descendant classes will be returned.
+     * @return list of found and loaded classes
+     */
+    public static <T> List<Class<? extends T>> findClassesFromResources(
+            ClassLoader classLoader, String basePackage, Class<T> baseClass) {
+        return findClassesFromResources(classLoader, basePackage, baseClass, true);
+    }
+
+    /**
+     * Load all classes from resources, visible from given class loader (see
+     * {@link #getResourceIndex(ClassLoader)}). Classes are loaded by this class loader.
+     *
+     * <p>
+     * Candidate classes are loaded without initialization, only found classes are initialized (when
+     * requested). When parallel scanning is on (see {@link ResourceLoader#setParallel(boolean)}) and
+     * class loader is parallel capable, candidates are loaded concurrently.
+     *
+     * @param <T>         base class type
+     * @param classLoader class loader, null - system class loader
+     * @param basePackage base package for classes - optional
+     * @param baseClass   - base class (interface) - only descendant classes will be returned.
+     * @param initialize  true - found classes are initialized (static initializers are run), false -
+     *                    only loaded
+     * @return list of found and loaded classes
+     */
+    public static <T> List<Class<? extends T>> findClassesFromResources(
+            ClassLoader classLoader, String basePackage, Class<T> baseClass, boolean initialize) {
+        ClassLoader loader = classLoader == null ? ClassLoader.getSystemClassLoader() : classLoader;
+        List<String> resources = getResourceIndex(loader).find(classGlob(basePackage));
+        return filterClasses(resources, baseClass, loader, initialize);
+    }
+
+    private static <T> List<Class<? extends T>> filterClasses(
+            List<String> resources, Class<T> baseClass, ClassLoader loader, boolean initialize) {
         List<Class<? extends T>> result = new ArrayList<>();
-        String regex = "";
-        if (basePackage != null && !basePackage.isEmpty()) {
-            regex = basePackage.replace(".", REGEX_PATH_DELIMITER) + REGEX_PATH_DELIMITER;
+        Executor executor = ResourceLoader.getExecutor();
+        if (executor == null || resources.size() <= LOAD_CHUNK_SIZE || !loader.isRegisteredAsParallelCapable()) {
+            result.addAll(filterChunk(resources, baseClass, loader));
+        } else {
+            List<CompletableFuture<List<Class<? extends T>>>> futures = new ArrayList<>();
+            for (int from = 0; from < resources.size(); from += LOAD_CHUNK_SIZE) {
+                List<String> chunk = resources.subList(from, Math.min(from + LOAD_CHUNK_SIZE, resources.size()));
+                futures.add(CompletableFuture.supplyAsync(() -> filterChunk(chunk, baseClass, loader), executor));
+            }
+            for (CompletableFuture<List<Class<? extends T>>> future : futures) {
+                result.addAll(future.join());
+            }
+        }
+        if (initialize) {
+            // in caller thread and in resource order, as static initializers could depend on each other
+            result.removeIf(clazz -> CLASS_CACHE.get(clazz.getName(), true, loader) == null);
         }
-        List<String> resources = findResourceFiles(regex + ".+?\\" + CLASS_EXT);
+        return result;
+    }
 
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static <T> List<Class<? extends T>> filterChunk(
+            List<String> resources, Class<T> baseClass, ClassLoader loader) {
+        List<Class<? extends T>> result = new ArrayList<>();
         for (String fullName : resources) {
+            String className = classNameFromResource(fullName);
+            if (className == null) {
+                continue;
+            }
 
-            Class clazz = classFromResource(fullName);
+            Class clazz = CLASS_CACHE.get(className, false, loader);
 
             if (clazz != null
                     && baseClass.isAssignableFrom(clazz)
@@ -148,4 +533,167 @@ public class ResourceUtils {
         }
         return result;
     }
+
+    /**
+     * Load all classes from resources, using class file headers for filtering.
+     *
+     * <p>
+     * Same as {@link #findClassesFromResources(String, Class)}, but class type (descendant,
+     * interface, abstract, module) is checked by class file header (see {@link ClassHierarchy}),
+     * without loading of class. Only found classes are loaded.
+     *
+     * @param <T>         base class type
+     * @param basePackage base package for classes - optional
+     * @param baseClass   - base class (interface) - only descendant classes will be returned.
+     * @return list of found and loaded classes
+     */
+    public static <T> List<Class<? extends T>> findClassesFromHeaders(String basePackage, Class<T> baseClass) {
+        return findClassesFromHeaders(ResourceUtils.class.getClassLoader(), basePackage, baseClass);
+    }
+
+    /**
+     * Load all classes from resources, using class file headers for filtering (see
+     * {@link #findClassesFromHeaders(String, Class)}). Super types outside of classpath hierarchy are
+     * checked and found classes are loaded by given class loader.
+     *
+     * @param <T>         base class type
+     * @param classLoader class loader, null - system class loader
+     * @param basePackage base package for classes - optional
+     * @param baseClass   - base class (interface) - only descendant classes will be returned.
+     * @return list of found and loaded classes
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public static <T> List<Class<? extends T>> findClassesFromHeaders(
+            ClassLoader classLoader, String basePackage, Class<T> baseClass) {
+        ClassLoader loader = classLoader == null ? ClassLoader.getSystemClassLoader() : classLoader;
+        List<Class<? extends T>> result = new ArrayList<>();
+        for (String className : findImplementationNames(loader, basePackage, baseClass)) {
+            Class clazz = getClass(className, loader);
+            if (clazz != null && baseClass.isAssignableFrom(clazz)) {
+                LOG.trace("Found class [{}] as instance of {}", clazz.getName(), baseClass.getName());
+                result.add(clazz.asSubclass(baseClass));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find names of all concrete classes, which are subtypes of given class (interface).
+     *
+     * <p>
+     * Classes are not loaded, subtypes are taken from subtype index of class hierarchy (see
+     * {@link ClassHierarchy#findImplementations(Class, ClassLoader)}), so search time depends on
+     * count of found classes, not on count of classpath classes. When base package is given and
+     * hierarchy of all classes is not read yet, only classes of package are read (see
+     * {@link ClasspathSnapshot#getClassHierarchy(String)}). Super types outside of hierarchy are
+     * checked by class loader of this library, as {@link #findClassesFromHeaders(String, Class)} loads
+     * found classes.
+     *
+     * @param basePackage base package for classes - optional
+     * @param baseClass   base class (interface)
+     * @return names of found classes
+     */
+    public static List<String> findImplementationNames(String basePackage, Class<?> baseClass) {
+        return findImplementationNames(ResourceUtils.class.getClassLoader(), basePackage, baseClass);
+    }
+
+    /**
+     * Find names of all concrete classes, which are subtypes of given class (interface). Super types
+     * outside of classpath hierarchy are checked by given class loader (see
+     * {@link #findImplementationNames(String, Class)}).
+     *
+     * @param classLoader class loader, null - system class loader
+     * @param basePackage base package for classes - optional
+     * @param baseClass   base class (interface)
+     * @return names of found classes
+     */
+    public static List<String> findImplementationNames(
+            ClassLoader classLoader, String basePackage, Class<?> baseClass) {
+        ClassLoader loader = classLoader == null ? ClassLoader.getSystemClassLoader() : classLoader;
+        ClasspathSnapshot snapshot = ResourceLoader.getSnapshot();
+        String prefix = basePackage == null || basePackage.isEmpty() ? "" : basePackage + '.';
+        List<String> classes;
+        if (prefix.isEmpty() || snapshot.isClassHierarchyRead()) {
+            classes = snapshot.getClassHierarchy().findImplementations(baseClass, loader);
+        } else {
+            // super types of package classes could be outside of package hierarchy, so check every class
+            classes = snapshot.getClassHierarchy(basePackage).findSubtypes(baseClass, true, loader);
+        }
+        List<String> result = new ArrayList<>();
+        for (String className : classes) {
+            if (className.startsWith(prefix)) {
+                result.add(className);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets hierarchy of all classes from classpath (see {@link ClassHierarchy}). Hierarchy is
+     * rebuilt, when classpath is changed.
+     *
+     * @return class hierarchy
+     */
+    public static ClassHierarchy getClassHierarchy() {
+        return ResourceLoader.getSnapshot().getClassHierarchy();
+    }
+
+    /**
+     * Find names of all classes, directly annotated by given annotation (with runtime retention).
+     *
+     * <p>
+     * Classes are not loaded, see {@link #getClassHierarchy()}. When base package is given and
+     * hierarchy of all classes is not read yet, only classes of package are read.
+     *
+     * @param basePackage base package for classes - optional
+     * @param annotation  annotation class
+     * @return names of found classes
+     */
+    public static List<String> findAnnotatedClassNames(String basePackage, Class<? extends Annotation> annotation) {
+        ClasspathSnapshot snapshot = ResourceLoader.getSnapshot();
+        String prefix = basePackage == null || basePackage.isEmpty() ? "" : basePackage + '.';
+        ClassHierarchy hierarchy = prefix.isEmpty() || snapshot.isClassHierarchyRead()
+                ? snapshot.getClassHierarchy()
+                : snapshot.getClassHierarchy(basePackage);
+        List<String> classes = hierarchy.findAnnotated(annotation.getName());
+        List<String> result = new ArrayList<>();
+        for (String className : classes) {
+            if (className.startsWith(prefix)) {
+                result.add(className);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Load all classes, directly annotated by given annotation (with runtime retention).
+     *
+     * @param basePackage base package for classes - optional
+     * @param annotation  annotation class
+     * @return list of found and loaded classes
+     */
+    public static List<Class<?>> findAnnotatedClasses(String basePackage, Class<? extends Annotation> annotation) {
+        List<Class<?>> result = new ArrayList<>();
+        for (String className : findAnnotatedClassNames(basePackage, annotation)) {
+            Class<?> clazz = getClass(className);
+            if (clazz != null) {
+                result.add(clazz);
+            }
+        }
+        return result;
+    }
+
+    /** Glob of classes of package and its subpackages. */
+    static ResourceGlob classGlob(String basePackage) {
+        return basePackage == null || basePackage.isEmpty()
+                ? CLASS_GLOB
+                : ResourceGlob.compile(packagePrefix(basePackage) + "**/*" + CLASS_EXT);
+    }
+
+    private static String packagePrefix(String basePackage) {
+        if (basePackage == null || basePackage.isEmpty()) {
+            return "";
+        }
+        return basePackage.replace('.', '/') + '/';
+    }
 }
@@ -0,0 +1,191 @@
+package dev.walgo.walib;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of service providers, declared in "META-INF/services/" files of all classpath entries (see
+ * {@link java.util.ServiceLoader}).
+ *
+ * <p>
+ * All service files are read in one pass (classpath entries are read concurrently), providers are
+ * found by service name without classpath search. Provider classes are not loaded. File syntax is
+ * the same as for {@link java.util.ServiceLoader}: one class name per line, "#" starts comment.
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+public final class ServiceIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceIndex.class);
+    /** Directory of service files. */
+    static final String SERVICES_DIR = "META-INF/services/";
+    private static final ResourceGlob SERVICES_GLOB = ResourceGlob.compile(SERVICES_DIR + "*");
+
+    private final Map<String, List<String>> providers;
+
+    private ServiceIndex(Map<String, List<String>> providers) {
+        this.providers = providers;
+    }
+
+    /**
+     * Read service files of index.
+     *
+     * @param index    resource index
+     * @param content  content reader for index resources
+     * @param executor executor for concurrent read, null - sequential read
+     * @return service index
+     */
+    public static ServiceIndex build(ResourceIndex index, ResourceContent content, Executor executor) {
+        List<String> files = index.find(SERVICES_GLOB);
+        // container -> service files
+        Map<String, List<String>> byContainer = new LinkedHashMap<>();
+        for (String file : files) {
+            for (String container : index.getContainers(file)) {
+                byContainer.computeIfAbsent(container, it -> new ArrayList<>()).add(file);
+            }
+        }
+        // container -> service file -> providers
+        Map<String, Map<String, List<String>>> parsed = new HashMap<>();
+        if (executor == null || byContainer.size() <= 1) {
+            for (Map.Entry<String, List<String>> entry : byContainer.entrySet()) {
+                parsed.put(entry.getKey(), readContainer(entry.getKey(), entry.getValue(), content));
+            }
+        } else {
+            Map<String, CompletableFuture<Map<String, List<String>>>> futures = new LinkedHashMap<>();
+            for (Map.Entry<String, List<String>> entry : byContainer.entrySet()) {
+                futures.put(entry.getKey(), CompletableFuture.supplyAsync(
+                        () -> readContainer(entry.getKey(), entry.getValue(), content), executor));
+            }
+            for (Map.Entry<String, CompletableFuture<Map<String, List<String>>>> future : futures.entrySet()) {
+                parsed.put(future.getKey(), future.getValue().join());
+            }
+        }
+        Map<String, List<String>> providers = new HashMap<>(files.size() * 2);
+        for (String file : files) {
+            // providers in classpath order, first declaration wins
+            Set<String> names = new LinkedHashSet<>();
+            for (String container : index.getContainers(file)) {
+                names.addAll(parsed.get(container).getOrDefault(file, Collections.emptyList()));
+            }
+            if (!names.isEmpty()) {
+                providers.put(file.substring(SERVICES_DIR.length()), List.copyOf(names));
+            }
+        }
+        LOG.debug("Services indexed: [{}] files in [{}] containers, [{}] services", files.size(),
+                byContainer.size(), providers.size());
+        return new ServiceIndex(providers);
+    }
+
+    /**
+     * Gets names of provider classes of service.
+     *
+     * @param service service name (interface or abstract class)
+     * @return provider class names in classpath order, empty list when service has no providers
+     */
+    public List<String> getProviders(String service) {
+        return providers.getOrDefault(service, Collections.emptyList());
+    }
+
+    /**
+     * Gets names of provider classes of service.
+     *
+     * @param service service class (interface or abstract class)
+     * @return provider class names in classpath order, empty list when service has no providers
+     */
+    public List<String> getProviders(Class<?> service) {
+        return getProviders(service.getName());
+    }
+
+    /**
+     * Gets names of all services with providers.
+     *
+     * @return service names (unmodifiable)
+     */
+    public Set<String> getServices() {
+        return Collections.unmodifiableSet(providers.keySet());
+    }
+
+    /** Read and parse service files of one container. */
+    private static Map<String, List<String>> readContainer(
+            String container, List<String> files, ResourceContent content) {
+        Map<String, List<String>> result = new HashMap<>();
+        for (String file : files) {
+            try {
+                ByteBuffer buffer = content.read(container, file);
+                if (buffer != null) {
+                    result.put(file, parse(StandardCharsets.UTF_8.decode(buffer.duplicate()), container, file));
+                }
+            } catch (IOException ex) {
+                LOG.warn("Error on read service file [{}] from [{}]: {}", file, container, ex.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parse service file content.
+     *
+     * @param text      file content
+     * @param container classpath entry (for logging)
+     * @param file      file name (for logging)
+     * @return provider class names, wrong names are skipped
+     */
+    static List<String> parse(CharSequence text, String container, String file) {
+        List<String> result = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = start;
+            while (end < text.length() && text.charAt(end) != '\n' && text.charAt(end) != '\r') {
+                end++;
+            }
+            String line = text.subSequence(start, end).toString();
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.strip();
+            if (!line.isEmpty()) {
+                if (isClassName(line)) {
+                    result.add(line);
+                } else {
+                    LOG.warn("Wrong provider name [{}] in service file [{}] from [{}]", line, file, container);
+                }
+            }
+            start = end + 1;
+        }
+        return result;
+    }
+
+    private static boolean isClassName(String name) {
+        boolean partStart = true;
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if (ch == '.' && !partStart) {
+                partStart = true;
+            } else if (partStart ? Character.isJavaIdentifierStart(ch) : Character.isJavaIdentifierPart(ch)) {
+                partStart = false;
+            } else {
+                return false;
+            }
+        }
+        return !partStart;
+    }
+
+    @Override
+    public String toString() {
+        return "ServiceIndex{services=" + providers.size() + "}";
+    }
+}
@@ -0,0 +1,519 @@
+package dev.walgo.walib;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Lightweight reader of ZIP (JAR) central directory.
+ *
+ * <p>
+ * Archive is memory-mapped and entries are decoded directly from mapped buffer: no entry objects
+ * are created, only entry names are decoded on request. Signatures are not processed (use
+ * {@link java.util.jar.JarFile} for it), multi-release entries are resolved by {@link MultiRelease}.
+ *
+ * <p>
+ * Entries are accessed by index (0 .. {@link #size()} - 1).
+ *
+ * @author Walery Wysotsky {@literal <dev@wysotsky.info>}
+ */
+public final class ZipDirectory {
+
+    /** Compression method: stored (no compression). */
+    public static final int STORED = 0;
+    /** Compression method: deflated. */
+    public static final int DEFLATED = 8;
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_EOCD_SIZE = 56;
+    private static final int CEN_SIGNATURE = 0x02014b50;
+    private static final int CEN_SIZE = 46;
+    private static final int LOC_SIGNATURE = 0x04034b50;
+    private static final int LOC_SIZE = 30;
+    private static final int ZIP64_EXTRA = 0x0001;
+    private static final int MAX_COMMENT = 0xFFFF;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    /** Pool of inflaters (native resources), shared by all archives. */
+    private static final BlockingQueue<Inflater> INFLATERS = new ArrayBlockingQueue<>(16);
+
+    private final String location;
+    private final ByteBuffer archive;
+    private final long base;
+    private final int[] entries;
+    private volatile int[] lookupTable;
+
+    private ZipDirectory(String location, ByteBuffer archive, long base, int[] entries) {
+        this.location = location;
+        this.archive = archive;
+        this.base = base;
+        this.entries = entries;
+    }
+
+    /**
+     * Open archive file. File is memory-mapped, file channel is closed immediately.
+     *
+     * @param file archive file
+     * @return archive directory
+     * @throws IOException on read error, when file is not ZIP archive or it's larger than 2GB
+     */
+    public static ZipDirectory open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Archive is too large: " + size);
+            }
+            return of(file.toString(), channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Read archive from buffer (e.g. nested archive).
+     *
+     * @param location archive location (for messages)
+     * @param archive  buffer with whole archive content, from position 0 to limit
+     * @return archive directory
+     * @throws IOException when buffer doesn't contain ZIP archive
+     */
+    public static ZipDirectory of(String location, ByteBuffer archive) throws IOException {
+        ByteBuffer buffer = archive.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int eocd = findEndOfDirectory(buffer);
+        if (eocd < 0) {
+            throw new IOException("Not a ZIP archive: " + location);
+        }
+        long count = buffer.getShort(eocd + 10) & 0xFFFF;
+        long dirSize = buffer.getInt(eocd + 12) & ZIP64_MAGIC;
+        long dirOffset = buffer.getInt(eocd + 16) & ZIP64_MAGIC;
+        int dirEnd = eocd;
+        int locator = eocd - ZIP64_LOCATOR_SIZE;
+        if (locator >= 0 && buffer.getInt(locator) == ZIP64_LOCATOR_SIGNATURE) {
+            // ZIP64 record usually precedes locator, recorded offset doesn't count preamble
+            int zip64 = locator - ZIP64_EOCD_SIZE;
+            if (zip64 < 0 || buffer.getInt(zip64) != ZIP64_EOCD_SIGNATURE) {
+                long recorded = buffer.getLong(locator + 8);
+                zip64 = recorded <= locator - ZIP64_EOCD_SIZE ? (int) recorded : -1;
+            }
+            if (zip64 >= 0 && buffer.getInt(zip64) == ZIP64_EOCD_SIGNATURE) {
+                count = buffer.getLong(zip64 + 32);
+                dirSize = buffer.getLong(zip64 + 40);
+                dirOffset = buffer.getLong(zip64 + 48);
+                dirEnd = zip64;
+            }
+        }
+        // archive could have preamble (e.g. executable jar), offsets are relative to archive start
+        long base = dirEnd - dirSize - dirOffset;
+        long dirStart = dirEnd - dirSize;
+        if (dirStart < 0 || base < 0 || count > Integer.MAX_VALUE) {
+            throw new IOException("Broken ZIP central directory: " + location);
+        }
+        int[] entries = new int[(int) Math.min(count, dirSize / CEN_SIZE)];
+        int pos = (int) dirStart;
+        int size = 0;
+        while (pos + CEN_SIZE <= dirEnd && buffer.getInt(pos) == CEN_SIGNATURE) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2 + 16);
+            }
+            entries[size++] = pos;
+            pos += CEN_SIZE + (buffer.getShort(pos + 28) & 0xFFFF) + (buffer.getShort(pos + 30) & 0xFFFF)
+                    + (buffer.getShort(pos + 32) & 0xFFFF);
+        }
+        if (size != entries.length) {
+            entries = Arrays.copyOf(entries, size);
+        }
+        return new ZipDirectory(location, buffer, base, entries);
+    }
+
+    private static int findEndOfDirectory(ByteBuffer buffer) {
+        int last = buffer.limit() - EOCD_SIZE;
+        int first = Math.max(0, last - MAX_COMMENT);
+        for (int pos = last; pos >= first; pos--) {
+            if (buffer.getInt(pos) == EOCD_SIGNATURE
+                    && pos + EOCD_SIZE + (buffer.getShort(pos + 20) & 0xFFFF) == buffer.limit()) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets archive location.
+     *
+     * @return archive location
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Gets count of archive entries (directories too).
+     *
+     * @return count of entries
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Gets entry name.
+     *
+     * @param index entry index
+     * @return entry name
+     */
+    public String getName(int index) {
+        int pos = entries[index];
+        int length = archive.getShort(pos + 28) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        archive.get(pos + CEN_SIZE, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets length of entry name in bytes.
+     *
+     * @param index entry index
+     * @return name length
+     */
+    public int getNameLength(int index) {
+        return archive.getShort(entries[index] + 28) & 0xFFFF;
+    }
+
+    /**
+     * Gets byte of entry name (UTF-8 encoded).
+     *
+     * @param index entry index
+     * @param pos   byte position in name
+     * @return name byte
+     */
+    public byte getNameByte(int index, int pos) {
+        return archive.get(entries[index] + CEN_SIZE + pos);
+    }
+
+    /**
+     * Check if entry name starts with given bytes (UTF-8 encoded prefix).
+     *
+     * @param index  entry index
+     * @param prefix name prefix
+     * @return true, when entry name starts with prefix
+     */
+    public boolean nameStartsWith(int index, byte[] prefix) {
+        return nameRegionEquals(index, 0, prefix);
+    }
+
+    /**
+     * Check if entry name ends with given bytes (UTF-8 encoded suffix).
+     *
+     * @param index  entry index
+     * @param suffix name suffix
+     * @return true, when entry name ends with suffix
+     */
+    public boolean nameEndsWith(int index, byte[] suffix) {
+        return nameRegionEquals(index, getNameLength(index) - suffix.length, suffix);
+    }
+
+    /**
+     * Check if entry name contains given bytes (UTF-8 encoded) at given position.
+     *
+     * @param index  entry index
+     * @param offset byte position in name
+     * @param bytes  bytes to compare
+     * @return true, when name region equals to bytes
+     */
+    public boolean nameRegionEquals(int index, int offset, byte[] bytes) {
+        int length = getNameLength(index);
+        if (offset < 0 || offset + bytes.length > length) {
+            return false;
+        }
+        int start = entries[index] + CEN_SIZE + offset;
+        for (int i = 0; i < bytes.length; i++) {
+            if (archive.get(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if entry is directory.
+     *
+     * @param index entry index
+     * @return true for directory
+     */
+    public boolean isDirectory(int index) {
+        int length = getNameLength(index);
+        return length > 0 && getNameByte(index, length - 1) == '/';
+    }
+
+    /**
+     * Find entry by name.
+     *
+     * @param name entry name
+     * @return entry index or -1, when not found
+     */
+    public int find(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < entries.length; i++) {
+            if (getNameLength(i) == bytes.length && nameStartsWith(i, bytes)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find entry by name, using hash table of entry names. Table is built on first call, so it's
+     * faster than {@link #find(String)} for many lookups in one archive.
+     *
+     * @param name entry name
+     * @return entry index or -1, when not found
+     */
+    public int lookup(String name) {
+        int[] table = lookupTable;
+        if (table == null) {
+            table = buildLookupTable();
+            lookupTable = table;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int hash = 1;
+        for (byte b : bytes) {
+            hash = 31 * hash + b;
+        }
+        int mask = table.length - 1;
+        for (int slot = mix(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int index = table[slot] - 1;
+            if (getNameLength(index) == bytes.length && nameStartsWith(index, bytes)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /** Open addressing table: slot contains entry index + 1, 0 - empty slot. */
+    private int[] buildLookupTable() {
+        int capacity = Integer.highestOneBit(Math.max(entries.length, 1) * 2 + 1) << 1;
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+        // in archive order, so first of duplicate names is found first (same as find)
+        for (int index = 0; index < entries.length; index++) {
+            int start = entries[index] + CEN_SIZE;
+            int length = getNameLength(index);
+            int hash = 1;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + archive.get(start + i);
+            }
+            int slot = mix(hash) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = index + 1;
+        }
+        return table;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Gets names of all not directory entries.
+     *
+     * @return entry names, in archive order
+     */
+    public List<String> getNames() {
+        List<String> result = new ArrayList<>(entries.length);
+        for (int i = 0; i < entries.length; i++) {
+            if (!isDirectory(i)) {
+                result.add(getName(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets entry compression method ({@link #STORED}, {@link #DEFLATED}, etc).
+     *
+     * @param index entry index
+     * @return compression method
+     */
+    public int getMethod(int index) {
+        return archive.getShort(entries[index] + 10) & 0xFFFF;
+    }
+
+    /**
+     * Gets entry CRC-32.
+     *
+     * @param index entry index
+     * @return CRC-32 of uncompressed content
+     */
+    public long getCrc(int index) {
+        return archive.getInt(entries[index] + 16) & ZIP64_MAGIC;
+    }
+
+    /**
+     * Gets entry uncompressed size.
+     *
+     * @param index entry index
+     * @return uncompressed size
+     */
+    public long getSize(int index) {
+        long size = archive.getInt(entries[index] + 24) & ZIP64_MAGIC;
+        return size == ZIP64_MAGIC ? zip64Value(index, 0) : size;
+    }
+
+    /**
+     * Gets entry compressed size.
+     *
+     * @param index entry index
+     * @return compressed size
+     */
+    public long getCompressedSize(int index) {
+        long size = archive.getInt(entries[index] + 20) & ZIP64_MAGIC;
+        return size == ZIP64_MAGIC ? zip64Value(index, 1) : size;
+    }
+
+    /**
+     * Gets offset of entry local header in buffer.
+     *
+     * @param index entry index
+     * @return local header offset (preamble included)
+     */
+    long getLocalHeaderOffset(int index) {
+        long offset = archive.getInt(entries[index] + 42) & ZIP64_MAGIC;
+        return base + (offset == ZIP64_MAGIC ? zip64Value(index, 2) : offset);
+    }
+
+    /**
+     * Gets value from ZIP64 extra field. Field contains only values, which are 0xFFFFFFFF in header,
+     * in order: size, compressed size, local header offset.
+     */
+    private long zip64Value(int index, int field) {
+        int pos = entries[index];
+        int extraStart = pos + CEN_SIZE + (archive.getShort(pos + 28) & 0xFFFF);
+        int extraEnd = extraStart + (archive.getShort(pos + 30) & 0xFFFF);
+        int header = extraStart;
+        while (header + 4 <= extraEnd) {
+            int id = archive.getShort(header) & 0xFFFF;
+            int length = archive.getShort(header + 2) & 0xFFFF;
+            if (id == ZIP64_EXTRA) {
+                int valuePos = header + 4;
+                long[] headerValues = {
+                        archive.getInt(pos + 24) & ZIP64_MAGIC,
+                        archive.getInt(pos + 20) & ZIP64_MAGIC,
+                        archive.getInt(pos + 42) & ZIP64_MAGIC };
+                for (int i = 0; i < field; i++) {
+                    if (headerValues[i] == ZIP64_MAGIC) {
+                        valuePos += 8;
+                    }
+                }
+                if (valuePos + 8 <= header + 4 + length) {
+                    return archive.getLong(valuePos);
+                }
+                break;
+            }
+            header += 4 + length;
+        }
+        return ZIP64_MAGIC;
+    }
+
+    /**
+     * Gets offset of entry data in buffer.
+     *
+     * @param index entry index
+     * @return data offset
+     * @throws IOException when local header is broken
+     */
+    long getDataOffset(int index) throws IOException {
+        long header = getLocalHeaderOffset(index);
+        if (header + LOC_SIZE > archive.limit() || archive.getInt((int) header) != LOC_SIGNATURE) {
+            throw new IOException("Broken local header of [" + getName(index) + "] in " + location);
+        }
+        return header + LOC_SIZE + (archive.getShort((int) header + 26) & 0xFFFF)
+                + (archive.getShort((int) header + 28) & 0xFFFF);
+    }
+
+    /**
+     * Gets raw (compressed) entry data. Buffer is view of archive, data is not copied.
+     *
+     * @param index entry index
+     * @return read-only buffer with compressed data
+     * @throws IOException when local header is broken
+     */
+    public ByteBuffer getRawData(int index) throws IOException {
+        long start = getDataOffset(index);
+        long end = start + getCompressedSize(index);
+        if (end > archive.limit()) {
+            throw new IOException("Broken entry [" + getName(index) + "] in " + location);
+        }
+        return archive.slice((int) start, (int) (end - start)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Read entry content. Stored entry is not copied, deflated entry is inflated to heap buffer
+     * (inflaters are pooled).
+     *
+     * @param index entry index
+     * @return read-only buffer with entry content
+     * @throws IOException on broken entry or unsupported compression method
+     */
+    public ByteBuffer read(int index) throws IOException {
+        ByteBuffer raw = getRawData(index);
+        int method = getMethod(index);
+        if (method == STORED) {
+            return raw;
+        }
+        if (method != DEFLATED) {
+            throw new IOException("Unsupported compression method " + method + " of [" + getName(index) + "] in "
+                    + location);
+        }
+        long size = getSize(index);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Entry is too large: [" + getName(index) + "] in " + location);
+        }
+        Inflater inflater = takeInflater();
+        try {
+            inflater.setInput(raw);
+            byte[] content = new byte[(int) size];
+            int length = 0;
+            while (length < content.length && !inflater.finished()) {
+                int read = inflater.inflate(content, length, content.length - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+            if (length != content.length) {
+                throw new IOException("Broken entry [" + getName(index) + "] in " + location);
+            }
+            return ByteBuffer.wrap(content).asReadOnlyBuffer();
+        } catch (DataFormatException ex) {
+            throw new IOException("Broken entry [" + getName(index) + "] in " + location, ex);
+        } finally {
+            releaseInflater(inflater);
+        }
+    }
+
+    private static Inflater takeInflater() {
+        Inflater inflater = INFLATERS.poll();
+        return inflater != null ? inflater : new Inflater(true);
+    }
+
+    private static void releaseInflater(Inflater inflater) {
+        inflater.reset();
+        if (!INFLATERS.offer(inflater)) {
+            inflater.end();
+        }
+    }
+}
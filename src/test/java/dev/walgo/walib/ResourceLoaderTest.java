@@ -3,12 +3,50 @@ package dev.walgo.walib;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
 import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class ResourceLoaderTest {
 
@@ -16,8 +54,37 @@ public class ResourceLoaderTest {
     static final String TEST_ZIP = "build/resources/test/test.zip";
     static final String TEST_DIR = "build/resources/test/test.dir";
 
+    @TempDir
+    Path tempDir;
+    private String savedLoaderPath;
+    private Executor savedExecutor;
+    private int savedMaxDepth;
+
+    @BeforeEach
+    public void saveGlobalState() {
+        savedLoaderPath = System.getProperty("loader.path");
+        savedExecutor = ResourceLoader.getExecutor();
+        savedMaxDepth = ResourceLoader.getMaxDepth();
+        System.setProperty("loader.path", TEST_JAR);
+    }
+
+    @AfterEach
+    public void restoreGlobalState() {
+        ResourceLoader.setWatching(false);
+        ResourceLoader.setSystemModules(false);
+        ResourceLoader.setExecutor(savedExecutor);
+        ResourceLoader.setMaxDepth(savedMaxDepth);
+        ResourceLoader.setIndexFile(null);
+        if (savedLoaderPath == null) {
+            System.clearProperty("loader.path");
+        } else {
+            System.setProperty("loader.path", savedLoaderPath);
+        }
+    }
+
     @Test
     public void testLoad() {
+        System.clearProperty("loader.path");
         Map<String, List<String>> result = ResourceLoader.loadFromClasspath();
         assertFalse(result.isEmpty());
         System.setProperty("loader.path", TEST_JAR);
@@ -26,6 +93,518 @@ public class ResourceLoaderTest {
         assertNotNull(resultWithSpring.get(TEST_JAR));
     }
 
+    @Test
+    public void testLoadAll_parallel() {
+        List<String> paths = List.of(TEST_DIR, TEST_JAR);
+        Map<String, List<String>> sequential = ResourceLoader.loadAll(paths, null, null);
+        Map<String, Duration> timings = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Map<String, List<String>> parallel = ResourceLoader.loadAll(paths, executor, timings);
+            assertEquals(sequential, parallel);
+            assertEquals(paths, List.copyOf(parallel.keySet()));
+            assertEquals(paths.size(), timings.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testClasspathIndex() throws IOException {
+        Path indexFile = tempDir.resolve("classpath.idx");
+        String missing = indexFile.resolveSibling("not-exists.jar").toString();
+        Map<File, ClasspathIndex.Stamp> stamps = new HashMap<>();
+        for (String location : List.of(TEST_JAR, TEST_DIR, missing)) {
+            ClasspathIndex.stamp(location, stamps);
+        }
+        Map<String, List<String>> jar = ResourceLoader.load(TEST_JAR);
+        ClasspathIndex index = ClasspathIndex.empty();
+        assertTrue(index.put(TEST_JAR, jar, stamps));
+        // directory is not indexed, so index is not changed
+        assertFalse(index.put(TEST_DIR, ResourceLoader.load(TEST_DIR), stamps));
+        // dangling manifest Class-Path entry doesn't prevent indexing
+        Map<String, List<String>> dangling = new LinkedHashMap<>(jar);
+        dangling.put(missing, List.of());
+        index.put("dangling", dangling, stamps);
+        // jar, changed after attributes were recorded, is indexed as changed
+        Path copy = tempDir.resolve("copy.jar");
+        Files.copy(Path.of(TEST_JAR), copy);
+        ClasspathIndex.stamp(copy.toString(), stamps);
+        Files.write(copy, new byte[] {1}, StandardOpenOption.APPEND);
+        index.put(copy.toString(), ResourceLoader.load(copy.toString()), stamps);
+        assertEquals(null, index.get(copy.toString()));
+        index.retain(List.of(TEST_JAR, TEST_DIR, "dangling"));
+        String container = jar.keySet().iterator().next();
+        ClassFileInfo info = new ClassFileInfo("a.B", 0x0001, null, List.of("a.C"), List.of());
+        index.putClasses(container, Map.of("a/B.class", info));
+        index.putClasses(TEST_DIR, Map.of("a/B.class", info));
+        assertTrue(index.isClassesChanged());
+        index.write(indexFile);
+
+        ClasspathIndex stored = ClasspathIndex.read(indexFile);
+        assertEquals(2, stored.size());
+        assertEquals(jar, stored.get(TEST_JAR));
+        assertEquals(dangling, stored.get("dangling"));
+        assertEquals(null, stored.get(TEST_DIR));
+        ClassFileInfo storedInfo = stored.getClasses(container).get("a/B.class");
+        assertEquals("a.B", storedInfo.getName());
+        assertEquals(null, storedInfo.getSuperName());
+        assertEquals(List.of("a.C"), storedInfo.getInterfaces());
+        assertEquals(null, stored.getClasses(TEST_DIR));
+        assertFalse(stored.isClassesChanged());
+    }
+
+    @Test
+    public void testLoadIndexed() throws IOException {
+        Path indexFile = tempDir.resolve("classpath.idx");
+        ResourceLoader.setIndexFile(indexFile);
+        ClasspathSnapshot snapshot = ResourceLoader.refresh();
+        assertTrue(Files.isRegularFile(indexFile));
+        Files.setLastModifiedTime(indexFile, FileTime.fromMillis(0));
+        // only directories are rescanned, index is not rewritten
+        assertEquals(snapshot.getResources(), ResourceLoader.refresh().getResources());
+        assertEquals(0, Files.getLastModifiedTime(indexFile).toMillis());
+    }
+
+    @Test
+    public void testLoadJar_precomputedIndex() throws IOException {
+        Path dir = Path.of(TEST_DIR);
+        PrecomputedIndex index = PrecomputedIndex.scan(List.of(dir));
+        Path jar = writeIndexedJar(index, dir, List.of("sub.dir/README.md", "build.sh"));
+        // resources are taken from index (in index order), not from jar content
+        List<String> expResult = List.of(JarFile.MANIFEST_NAME, PrecomputedIndex.LOCATION, "build.sh",
+                "sub.dir/README.md");
+        assertEquals(expResult, ResourceLoader.loadJar(jar.toString()).get(jar.toString()));
+
+        // jar was changed after indexing (e.g. signed), index is ignored
+        Path signed = writeIndexedJar(index, dir, List.of("sub.dir/README.md", "build.sh", "META-INF/APP.SF"));
+        assertEquals(List.of(JarFile.MANIFEST_NAME, PrecomputedIndex.LOCATION, "sub.dir/README.md", "build.sh",
+                "META-INF/APP.SF"), ResourceLoader.loadJar(signed.toString()).get(signed.toString()));
+        // the same count of entries, but renamed (e.g. shaded) one
+        Path shaded = writeIndexedJar(index, dir, List.of("sub.dir/README.md", "shaded/build.sh"));
+        assertEquals(List.of(JarFile.MANIFEST_NAME, PrecomputedIndex.LOCATION, "sub.dir/README.md",
+                "shaded/build.sh"), ResourceLoader.loadJar(shaded.toString()).get(shaded.toString()));
+        // the same names, but changed content (e.g. instrumented)
+        Path changed = tempDir.resolve("changed");
+        Files.createDirectories(changed.resolve("sub.dir"));
+        Files.copy(dir.resolve("sub.dir/README.md"), changed.resolve("sub.dir/README.md"));
+        Files.writeString(changed.resolve("build.sh"), "changed");
+        Path instrumented = writeIndexedJar(index, changed, List.of("sub.dir/README.md", "build.sh"));
+        assertEquals(List.of(JarFile.MANIFEST_NAME, PrecomputedIndex.LOCATION, "sub.dir/README.md", "build.sh"),
+                ResourceLoader.loadJar(instrumented.toString()).get(instrumented.toString()));
+    }
+
+    /** Write jar with index and given entries, entry content is taken from directory (empty, when no file). */
+    private Path writeIndexedJar(PrecomputedIndex index, Path dir, List<String> entries) throws IOException {
+        Path jar = Files.createTempFile(tempDir, "walib", ".jar");
+        try (OutputStream out = Files.newOutputStream(jar);
+                JarOutputStream jarOut = new JarOutputStream(out, new Manifest())) {
+            jarOut.putNextEntry(new JarEntry(PrecomputedIndex.LOCATION));
+            OutputStreamWriter writer = new OutputStreamWriter(jarOut, StandardCharsets.UTF_8);
+            index.write(writer);
+            writer.flush();
+            jarOut.closeEntry();
+            for (String entry : entries) {
+                jarOut.putNextEntry(new JarEntry(entry));
+                Path file = dir.resolve(entry);
+                if (Files.isRegularFile(file)) {
+                    jarOut.write(Files.readAllBytes(file));
+                }
+                jarOut.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    @Test
+    public void testZipDirectory() throws IOException {
+        byte[] content = "stored content".getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        Path jar = tempDir.resolve("walib.jar");
+        try (OutputStream out = Files.newOutputStream(jar);
+                JarOutputStream jarOut = new JarOutputStream(out, new Manifest())) {
+            jarOut.putNextEntry(new JarEntry("dir/"));
+            jarOut.closeEntry();
+            JarEntry stored = new JarEntry("dir/stored.txt");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(content.length);
+            stored.setCrc(crc.getValue());
+            jarOut.putNextEntry(stored);
+            jarOut.write(content);
+            jarOut.closeEntry();
+            jarOut.putNextEntry(new JarEntry("dir/deflated.txt"));
+            jarOut.write(content);
+            jarOut.closeEntry();
+        }
+        ZipDirectory zip = ZipDirectory.open(jar);
+        assertEquals(List.of(JarFile.MANIFEST_NAME, "dir/stored.txt", "dir/deflated.txt"), zip.getNames());
+        int stored = zip.find("dir/stored.txt");
+        int deflated = zip.find("dir/deflated.txt");
+        assertEquals(ZipDirectory.STORED, zip.getMethod(stored));
+        assertEquals(ZipDirectory.DEFLATED, zip.getMethod(deflated));
+        assertEquals(crc.getValue(), zip.getCrc(deflated));
+        assertEquals(ByteBuffer.wrap(content), zip.read(stored));
+        assertEquals(ByteBuffer.wrap(content), zip.read(deflated));
+        assertEquals(-1, zip.find("dir/none.txt"));
+        assertTrue(zip.isDirectory(zip.find("dir/")));
+    }
+
+    @Test
+    public void testResourceContent() throws IOException {
+        byte[] content = "stored content".getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        Path jar = tempDir.resolve("walib.jar");
+        try (OutputStream out = Files.newOutputStream(jar);
+                JarOutputStream jarOut = new JarOutputStream(out, new Manifest())) {
+            JarEntry stored = new JarEntry("dir/stored.txt");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(content.length);
+            stored.setCrc(crc.getValue());
+            jarOut.putNextEntry(stored);
+            jarOut.write(content);
+            jarOut.closeEntry();
+            jarOut.putNextEntry(new JarEntry("dir/deflated.txt"));
+            jarOut.write(content);
+            jarOut.closeEntry();
+        }
+        ZipDirectory zip = ZipDirectory.open(jar);
+        assertEquals(zip.find("dir/deflated.txt"), zip.lookup("dir/deflated.txt"));
+        assertEquals(-1, zip.lookup("dir/none.txt"));
+
+        ResourceContent reader = new ResourceContent();
+        ByteBuffer stored = reader.read(jar.toString(), "dir/stored.txt");
+        assertTrue(stored.isReadOnly());
+        assertEquals(ByteBuffer.wrap(content), stored);
+        assertEquals(ByteBuffer.wrap(content), reader.read(jar.toString(), "dir/deflated.txt"));
+        assertEquals(null, reader.read(jar.toString(), "dir/none.txt"));
+        Map<String, ByteBuffer> all = reader.readAll(jar.toString(),
+                List.of("dir/deflated.txt", "dir/none.txt", "dir/stored.txt"));
+        assertEquals(List.of("dir/deflated.txt", "dir/stored.txt"), List.copyOf(all.keySet()));
+        assertEquals(ByteBuffer.wrap(content), all.get("dir/deflated.txt"));
+
+        ByteBuffer file = reader.read(TEST_DIR, "sub.dir/README.md");
+        assertTrue(file.isReadOnly());
+        assertTrue(file.remaining() > 0);
+        assertEquals(null, reader.read(TEST_DIR, "../test.jar"));
+        assertEquals(List.of("test.dir/sub.dir/README.md"), List.copyOf(
+                ResourceUtils.getResourceContents(List.of("test.dir/sub.dir/README.md", "none.txt")).keySet()));
+        assertEquals(file, ResourceUtils.getResourceContent("test.dir/sub.dir/README.md"));
+    }
+
+    @Test
+    public void testLoad_filter() throws IOException {
+        Files.createDirectories(tempDir.resolve("db/migration"));
+        Files.createDirectories(tempDir.resolve("other/db"));
+        Files.writeString(tempDir.resolve("db/migration/V1.sql"), "");
+        Files.writeString(tempDir.resolve("db/migration/README.md"), "");
+        Files.writeString(tempDir.resolve("other/db/V2.sql"), "");
+        ResourceFilter prefix = ResourceFilter.prefix("db/migration/");
+        assertTrue(prefix.acceptDirectory("db/"));
+        assertTrue(prefix.acceptDirectory("db/migration/sub/"));
+        assertFalse(prefix.acceptDirectory("other/"));
+        assertEquals(List.of("db/migration/V1.sql"),
+                ResourceLoader.loadDirectory(tempDir.toString(), prefix.and(name -> name.endsWith(".sql"))));
+        assertEquals(Map.of(tempDir.toString(), List.of("db/migration/V1.sql")),
+                ResourceLoader.load(tempDir.toString(), prefix.and(ResourceFilter.suffix(".sql"))));
+        assertEquals(List.of("dev/walgo/walib/MetaInfo.class"),
+                ResourceLoader.loadJar(TEST_JAR, ResourceFilter.suffix(".class")).get(TEST_JAR));
+        assertEquals(ResourceLoader.loadZip(TEST_ZIP).size(), ResourceLoader.loadZip(TEST_ZIP, null).size());
+        assertEquals(List.of(), ResourceLoader.loadZip(TEST_ZIP, ResourceFilter.prefix("none/")));
+        assertEquals(List.of("dev/walgo/walib/MetaInfo.class"),
+                ResourceUtils.scanResourceFiles(ResourceFilter.suffix("walib/MetaInfo.class")));
+    }
+
+    @Test
+    public void testWatching() throws IOException, InterruptedException {
+        String container = tempDir.toString();
+        BlockingQueue<ClasspathChange> changes = new LinkedBlockingQueue<>();
+        ClasspathListener listener = changes::add;
+        System.setProperty("loader.path", TEST_JAR + "," + container);
+        try {
+            Files.writeString(tempDir.resolve("old.txt"), "old");
+            long version = ResourceLoader.getSnapshot().getVersion();
+            ResourceUtils.addClasspathListener(listener);
+            ResourceLoader.setWatching(true);
+            assertTrue(ResourceLoader.isWatching());
+
+            Files.createDirectories(tempDir.resolve("sub"));
+            Files.writeString(tempDir.resolve("sub/new.txt"), "new");
+            Files.delete(tempDir.resolve("old.txt"));
+            List<String> added = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            while (!added.contains("sub/new.txt") || removed.isEmpty()) {
+                ClasspathChange change = changes.poll(10, TimeUnit.SECONDS);
+                assertNotNull(change);
+                assertEquals(container, change.getContainer());
+                added.addAll(change.getAdded());
+                removed.addAll(change.getRemoved());
+            }
+            assertEquals(List.of("old.txt"), removed);
+            ClasspathSnapshot snapshot = ResourceLoader.getSnapshot();
+            assertTrue(snapshot.getVersion() > version);
+            assertEquals(List.of("sub/new.txt"), snapshot.getResources().get(container));
+            assertEquals(List.of(container), snapshot.getIndex().getContainers("sub/new.txt"));
+            ResourceLoader.setWatching(false);
+            assertFalse(ResourceLoader.isWatching());
+        } finally {
+            ResourceUtils.removeClasspathListener(listener);
+        }
+    }
+
+    @Test
+    public void testLoadJar_multiRelease() throws IOException {
+        Path jar = tempDir.resolve("mr.jar");
+        Path plain = tempDir.resolve("plain.jar");
+        for (Path file : List.of(jar, plain)) {
+            Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            if (file.equals(jar)) {
+                manifest.getMainAttributes().putValue("Multi-Release", "true");
+            }
+            try (OutputStream out = Files.newOutputStream(file);
+                    JarOutputStream jarOut = new JarOutputStream(out, manifest)) {
+                for (String name : List.of("a/A.class", "META-INF/versions/9/a/A.class",
+                        "META-INF/versions/9/a/B.txt", "META-INF/versions/99999/a/A.class")) {
+                    jarOut.putNextEntry(new JarEntry(name));
+                    jarOut.write(name.getBytes(StandardCharsets.UTF_8));
+                    jarOut.closeEntry();
+                }
+            }
+        }
+        assertEquals(List.of(JarFile.MANIFEST_NAME, "a/A.class", "a/B.txt"),
+                ResourceLoader.loadJar(jar.toString()).get(jar.toString()));
+        assertEquals(5, ResourceLoader.loadJar(plain.toString()).get(plain.toString()).size());
+
+        ResourceContent reader = new ResourceContent();
+        ByteBuffer content = reader.read(jar.toString(), "a/A.class");
+        assertEquals(ByteBuffer.wrap("META-INF/versions/9/a/A.class".getBytes(StandardCharsets.UTF_8)), content);
+        assertEquals(ByteBuffer.wrap("a/A.class".getBytes(StandardCharsets.UTF_8)),
+                reader.read(plain.toString(), "a/A.class"));
+        assertEquals(List.of(new ResourceEntry(jar.toString(), "a/B.txt")),
+                ResourceLoader.stream(List.of(jar.toString()), ResourceFilter.suffix(".txt"))
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testResourceDuplicates() throws IOException {
+        Path dir = tempDir.toRealPath();
+        Path a = dir.resolve("a.jar");
+        Path b = dir.resolve("b.jar");
+        for (Path jar : List.of(a, b)) {
+            try (OutputStream out = Files.newOutputStream(jar);
+                    JarOutputStream jarOut = new JarOutputStream(out, new Manifest())) {
+                jarOut.putNextEntry(new JarEntry("x/Same.class"));
+                jarOut.write(new byte[] {1, 2, 3});
+                jarOut.closeEntry();
+                jarOut.putNextEntry(new JarEntry("x/Diff.class"));
+                jarOut.write(jar.equals(a) ? 1 : 2);
+                jarOut.closeEntry();
+            }
+        }
+        Path classes = dir.resolve("classes");
+        Files.createDirectories(classes.resolve("x"));
+        Files.write(classes.resolve("x/Same.class"), new byte[] {1, 2, 3});
+        List<String> paths = List.of(a.toString(), b.toString(), classes.toString());
+        ResourceIndex index = ResourceIndex.of(ResourceLoader.loadAll(paths, null, null));
+
+        ResourceDuplicates report = ResourceDuplicates.analyze(index, new ResourceContent(),
+                ResourceFilter.suffix(".class"), null);
+        assertEquals(Map.of("x/Same.class", paths), report.getDuplicates());
+        assertEquals(Map.of("x/Diff.class", List.of(a.toString(), b.toString())), report.getConflicts());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ResourceDuplicates parallel = ResourceDuplicates.analyze(index, new ResourceContent(),
+                    ResourceFilter.suffix(".class"), executor);
+            assertEquals(report.getDuplicates(), parallel.getDuplicates());
+            assertEquals(report.getConflicts(), parallel.getConflicts());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testServiceIndex() throws IOException {
+        Path dir = tempDir.toRealPath();
+        String service = ServiceIndex.SERVICES_DIR + "x.Service";
+        Path jar = dir.resolve("a.jar");
+        try (OutputStream out = Files.newOutputStream(jar);
+                JarOutputStream jarOut = new JarOutputStream(out, new Manifest())) {
+            jarOut.putNextEntry(new JarEntry(service));
+            jarOut.write("# providers\nx.A\r\n  x.B # second\n\nwrong name\n".getBytes(StandardCharsets.UTF_8));
+            jarOut.closeEntry();
+        }
+        Path classes = dir.resolve("classes");
+        Files.createDirectories(classes.resolve(ServiceIndex.SERVICES_DIR));
+        Files.writeString(classes.resolve(service), "x.B\nx.C");
+        Files.writeString(classes.resolve(ServiceIndex.SERVICES_DIR + "y.Empty"), "# nothing\n");
+        List<String> paths = List.of(jar.toString(), classes.toString());
+        ResourceIndex index = ResourceIndex.of(ResourceLoader.loadAll(paths, null, null));
+
+        ServiceIndex services = ServiceIndex.build(index, new ResourceContent(), null);
+        assertEquals(List.of("x.A", "x.B", "x.C"), services.getProviders("x.Service"));
+        assertEquals(List.of(), services.getProviders("y.Empty"));
+        assertEquals(Set.of("x.Service"), services.getServices());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ServiceIndex parallel = ServiceIndex.build(index, new ResourceContent(), executor);
+            assertEquals(services.getProviders("x.Service"), parallel.getProviders("x.Service"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLoadJar_fatJar() throws IOException {
+        ByteArrayOutputStream inner = new ByteArrayOutputStream();
+        try (JarOutputStream jarOut = new JarOutputStream(inner)) {
+            jarOut.putNextEntry(new JarEntry("lib/Resource.txt"));
+            jarOut.write(1);
+            jarOut.closeEntry();
+        }
+        byte[] innerJar = inner.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(innerJar);
+        Path jar = tempDir.resolve("walib.jar");
+        try (OutputStream out = Files.newOutputStream(jar);
+                JarOutputStream jarOut = new JarOutputStream(out, new Manifest())) {
+            jarOut.putNextEntry(new JarEntry("BOOT-INF/classes/app/App.txt"));
+            jarOut.closeEntry();
+            JarEntry lib = new JarEntry("BOOT-INF/lib/inner.jar");
+            lib.setMethod(ZipEntry.STORED);
+            lib.setSize(innerJar.length);
+            lib.setCrc(crc.getValue());
+            jarOut.putNextEntry(lib);
+            jarOut.write(innerJar);
+            jarOut.closeEntry();
+        }
+        String path = jar.toString();
+        Map<String, List<String>> result = ResourceLoader.loadJar(path);
+        assertEquals(List.of(path, path + "!/BOOT-INF/classes/", path + "!/BOOT-INF/lib/inner.jar"),
+                List.copyOf(result.keySet()));
+        assertEquals(List.of("app/App.txt"), result.get(path + "!/BOOT-INF/classes/"));
+        assertEquals(List.of("lib/Resource.txt"), result.get(path + "!/BOOT-INF/lib/inner.jar"));
+        assertEquals(List.of("lib/Resource.txt"), ResourceLoader.load(path + "!/BOOT-INF/lib/inner.jar")
+                .get(path + "!/BOOT-INF/lib/inner.jar"));
+    }
+
+    @Test
+    public void testLoadJar_manifestClassPath() throws IOException {
+        Path dir = tempDir.toRealPath();
+        Files.createDirectories(dir.resolve("lib"));
+        Path a = writeJar(dir.resolve("a.jar"), "b.jar lib/c.jar", "a.txt");
+        Path b = writeJar(dir.resolve("b.jar"), "a.jar", "b.txt");
+        Path c = writeJar(dir.resolve("lib/c.jar"), "../b.jar missing.jar", "c.txt");
+
+        Map<String, List<String>> result = ResourceLoader.loadJar(a.toString());
+        assertEquals(List.of(a.toString(), b.toString(), c.toString(), dir.resolve("lib/missing.jar").toString()),
+                List.copyOf(result.keySet()));
+        assertTrue(result.get(b.toString()).contains("b.txt"));
+        assertTrue(result.get(c.toString()).contains("c.txt"));
+
+        ResourceLoader.setParallel(true);
+        assertEquals(result, ResourceLoader.loadAll(List.of(a.toString(), c.toString()),
+                ResourceLoader.getExecutor(), null));
+    }
+
+    private static Path writeJar(Path jar, String classPath, String resource) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPath);
+        try (OutputStream out = Files.newOutputStream(jar);
+                JarOutputStream jarOut = new JarOutputStream(out, manifest)) {
+            jarOut.putNextEntry(new JarEntry(resource));
+            jarOut.closeEntry();
+        }
+        return jar;
+    }
+
+    @Test
+    public void testStream() {
+        List<String> paths = List.of(TEST_DIR, TEST_JAR);
+        List<ResourceEntry> all = ResourceLoader.stream(paths, ResourceFilter.all()).collect(Collectors.toList());
+        assertEquals(4, all.size());
+        assertTrue(all.contains(new ResourceEntry(TEST_DIR, "sub.dir/README.md")));
+        assertTrue(all.contains(new ResourceEntry(TEST_JAR, "dev/walgo/walib/MetaInfo.class")));
+        List<ResourceEntry> classes = ResourceLoader.stream(paths, ResourceFilter.suffix(".class"))
+                .collect(Collectors.toList());
+        assertEquals(List.of(new ResourceEntry(TEST_JAR, "dev/walgo/walib/MetaInfo.class")), classes);
+        Optional<ResourceEntry> first = ResourceLoader.stream(paths, ResourceFilter.prefix("META-INF/")).findFirst();
+        assertEquals("META-INF/MANIFEST.MF", first.get().getName());
+    }
+
+    @Test
+    public void testLoadDirectory_walker() throws IOException {
+        Files.createDirectories(tempDir.resolve("a/b/c"));
+        Files.writeString(tempDir.resolve("root.txt"), "r");
+        Files.writeString(tempDir.resolve("a/one.txt"), "1");
+        Files.writeString(tempDir.resolve("a/b/c/deep.txt"), "3");
+        Files.createSymbolicLink(tempDir.resolve("a/b/loop"), tempDir.resolve("a"));
+        // the same directory by other path is not a loop
+        Files.createSymbolicLink(tempDir.resolve("link"), tempDir.resolve("a/b/c"));
+        String path = tempDir.toString();
+        List<String> expected = List.of("a/b/c/deep.txt", "a/one.txt", "link/deep.txt", "root.txt");
+
+        assertEquals(expected, ResourceLoader.loadDirectory(path).stream().sorted().toList());
+        assertEquals(expected, ResourceLoader.stream(List.of(path), ResourceFilter.all())
+                .map(ResourceEntry::getName).sorted().toList());
+        ResourceLoader.setParallel(true);
+        assertEquals(expected, ResourceLoader.loadDirectory(path).stream().sorted().toList());
+        ResourceLoader.setMaxDepth(2);
+        assertEquals(List.of("a/one.txt", "link/deep.txt", "root.txt"),
+                ResourceLoader.loadDirectory(path).stream().sorted().toList());
+    }
+
+    @Test
+    public void testLoadFromModules() {
+        assertFalse(ResourceLoader.loadFromModulePath().containsKey("java.base"));
+        ResourceLoader.setSystemModules(true);
+        Map<String, List<String>> modules = ResourceLoader.loadFromModulePath();
+        assertTrue(modules.get("java.base").contains("java/lang/Object.class"));
+        assertEquals(List.of("java/lang/Object.class"), ResourceUtils.findModuleResourceFiles(
+                ModuleLayer.boot(), List.of("java.base"), "java/lang/", "^Object\\.class$"));
+        assertEquals(List.of(), ResourceUtils.findModuleResourceFiles(
+                ModuleLayer.boot(), List.of("java.sql"), "java/lang/", "^Object\\.class$"));
+        assertTrue(ResourceLoader.loadFromJrt().get("java.base").contains("java/lang/Object.class"));
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        ClasspathSnapshot snapshot = ResourceLoader.getSnapshot();
+        assertSame(snapshot, ResourceLoader.getSnapshot());
+        assertSame(snapshot.getResources(), ResourceLoader.loadFromClasspath());
+        assertSame(snapshot, ResourceLoader.refreshIfChanged());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getResources().put("x", List.of()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ClasspathSnapshot>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(ResourceLoader::refresh));
+            }
+            for (Future<ClasspathSnapshot> future : futures) {
+                ClasspathSnapshot refreshed = future.get();
+                assertTrue(refreshed.getVersion() > snapshot.getVersion());
+                assertEquals(snapshot.getResources().keySet(), refreshed.getResources().keySet());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertSame(ResourceLoader.getSnapshot().getIndex(), ResourceUtils.getResourceIndex());
+    }
+
+    @Test
+    public void testCompactStringList() {
+        List<String> names = List.of("a/b/C.class", "a/b/D.class", "E.txt", "a/b/c/\u0416.txt", "a/b/", "");
+        List<String> compact = CompactStringList.of(names);
+        assertEquals(names, compact);
+        assertEquals(names.hashCode(), compact.hashCode());
+        assertEquals(List.of(), CompactStringList.of(List.of()));
+        Map<String, List<String>> classpath = ResourceLoader.loadFromClasspath();
+        assertTrue(classpath.values().stream().allMatch(it -> it instanceof CompactStringList));
+    }
+
     @Test
     public void testLoadFromUrl_Jar() {
         String testFile = TEST_JAR;
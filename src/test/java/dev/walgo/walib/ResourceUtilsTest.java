@@ -1,14 +1,49 @@
 package dev.walgo.walib;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 public class ResourceUtilsTest {
 
+    private String savedLoaderPath;
+    private Executor savedExecutor;
+
+    @BeforeEach
+    public void saveGlobalState() {
+        savedLoaderPath = System.getProperty("loader.path");
+        savedExecutor = ResourceLoader.getExecutor();
+        System.setProperty("loader.path", ResourceLoaderTest.TEST_JAR);
+    }
+
+    @AfterEach
+    public void restoreGlobalState() {
+        ResourceLoader.setExecutor(savedExecutor);
+        if (savedLoaderPath == null) {
+            System.clearProperty("loader.path");
+        } else {
+            System.setProperty("loader.path", savedLoaderPath);
+        }
+    }
+
     @Test
     public void testFindResourceFiles_zip() {
-        System.setProperty("loader.path", ResourceLoaderTest.TEST_JAR);
         String resourceRegex = "\\/MetaInfo\\.class";
         List<String> expResult = List.of("dev/walgo/walib/MetaInfo.class");
         List<String> result = ResourceUtils.findResourceFiles(resourceRegex);
@@ -23,6 +58,131 @@ public class ResourceUtilsTest {
         Assertions.assertEquals(expResult, result);
     }
 
+    @Test
+    public void testResourceIndex() {
+        ResourceIndex index = ResourceIndex.of(Map.of(
+                "a.jar", List.of("b/c/D.class", "a/B.class", "b/E.txt"),
+                "b.jar", List.of("b/c/D.class", "b/cd/F.class")));
+        Assertions.assertEquals(5, index.size());
+        Assertions.assertEquals(List.of("b/E.txt", "b/c/D.class", "b/c/D.class", "b/cd/F.class"),
+                index.findByPrefix("b/"));
+        Assertions.assertEquals(List.of("b/c/D.class", "b/c/D.class"), index.findByPrefix("b/c/"));
+        Assertions.assertEquals(List.of("b/c/D.class", "b/c/D.class", "b/cd/F.class"),
+                index.find("b/", Pattern.compile("^c.*?\\.class")));
+        Assertions.assertEquals(List.of(), index.findByPrefix("x/"));
+        Assertions.assertEquals(2, index.getContainers("b/c/D.class").size());
+    }
+
+    @Test
+    public void testResourceGlob() {
+        ResourceGlob glob = ResourceGlob.compile("com/acme/**/*.class");
+        Assertions.assertEquals("com/acme/", glob.getPrefix());
+        Assertions.assertTrue(glob.accept("com/acme/A.class"));
+        Assertions.assertTrue(glob.accept("com/acme/b/c/A.class"));
+        Assertions.assertFalse(glob.accept("com/acme/A.classes"));
+        Assertions.assertFalse(glob.accept("com/acmeX/A.class"));
+        Assertions.assertTrue(glob.acceptDirectory("com/"));
+        Assertions.assertTrue(glob.acceptDirectory("com/acme/b/"));
+        Assertions.assertFalse(glob.acceptDirectory("org/"));
+
+        ResourceGlob sql = ResourceGlob.compile("db/V?_*.sql");
+        Assertions.assertTrue(sql.accept("db/V1_init.sql"));
+        Assertions.assertFalse(sql.accept("db/V10_init.sql"));
+        Assertions.assertFalse(sql.accept("db/sub/V1_init.sql"));
+        Assertions.assertFalse(sql.acceptDirectory("db/sub/"));
+        Assertions.assertTrue(ResourceGlob.compile("**/x/*.txt").accept("x/a.txt"));
+        Assertions.assertTrue(ResourceGlob.compile("a/**/b/**/c").accept("a/b/x/b/y/c"));
+        Assertions.assertFalse(ResourceGlob.compile("a/**/b/c").accept("a/b/x/c"));
+        Assertions.assertTrue(ResourceGlob.compile("a\\*.txt").accept("a*.txt"));
+        Assertions.assertFalse(ResourceGlob.compile("a\\*.txt").accept("ab.txt"));
+
+        ResourceIndex index = ResourceIndex.of(Map.of(
+                "a.jar", List.of("com/acme/A.class", "com/acme/b/B.class", "com/other/C.class", "db/V1_a.sql")));
+        Assertions.assertEquals(List.of("com/acme/A.class", "com/acme/b/B.class"), index.find(glob));
+        Assertions.assertEquals(List.of("dev/walgo/walib/PackageMetaInfo.class"),
+                ResourceUtils.findResourceFiles(ResourceGlob.compile("dev/walgo/*/PackageMeta*.class")));
+        Assertions.assertEquals(List.of("dev/walgo/walib/MetaInfo.class"),
+                ResourceLoader.loadJar(ResourceLoaderTest.TEST_JAR, ResourceFilter.glob("**/Meta*.class"))
+                        .get(ResourceLoaderTest.TEST_JAR));
+    }
+
+    @Test
+    public void testFindResourceFiles_anchored() {
+        Assertions.assertEquals("dev/walgo/wal", ResourceUtils.literalPrefix("^dev\\/walgo/wali?b"));
+        Assertions.assertEquals("dev/walgo/walib", ResourceUtils.literalPrefix("^dev/walgo/walib\\.*"));
+        Assertions.assertEquals("", ResourceUtils.literalPrefix("dev/walgo/"));
+        Assertions.assertEquals("", ResourceUtils.literalPrefix("^dev/|^com/"));
+        Assertions.assertEquals("", ResourceUtils.literalPrefix("^(?i)dev/"));
+        Assertions.assertEquals(List.of("dev/walgo/walib/PackageMetaInfo.class"),
+                ResourceUtils.findResourceFiles("^dev\\/walgo\\/walib\\/Package[M]eta.*\\.class$"));
+    }
+
+    @Test
+    public void testFindResourceFiles_prefix() {
+        List<String> result = ResourceUtils.findResourceFiles("dev/walgo/walib/", "PackageMetaInfo\\.class");
+        Assertions.assertEquals(List.of("dev/walgo/walib/PackageMetaInfo.class"), result);
+    }
+
+    @Test
+    public void testFindResourceFiles_classLoader() throws IOException {
+        Path jar = Path.of(ResourceLoaderTest.TEST_JAR).toAbsolutePath();
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {jar.toUri().toURL()},
+                ClassLoader.getSystemClassLoader())) {
+            List<String> result = ResourceUtils.findResourceFiles(loader, "dev/walgo/walib/", "^MetaInfo\\.class$");
+            Assertions.assertTrue(result.contains("dev/walgo/walib/MetaInfo.class"));
+            ResourceIndex index = ResourceUtils.getResourceIndex(loader);
+            Assertions.assertSame(index, ResourceUtils.getResourceIndex(loader));
+            Assertions.assertTrue(index.getContainers("dev/walgo/walib/MetaInfo.class").contains(jar.toString()));
+            Assertions.assertTrue(ResourceUtils.getResourceIndex(ClassLoader.getSystemClassLoader())
+                    .getContainers("dev/walgo/walib/MetaInfo.class").stream().noneMatch(jar.toString()::equals));
+        }
+    }
+
+    @Test
+    public void testClassCache() throws Exception {
+        ClassCache cache = new ClassCache(Duration.ofMinutes(1));
+        ClassLoader loader = getClass().getClassLoader();
+        Assertions.assertSame(PackageMetaInfo.class, cache.get("dev.walgo.walib.PackageMetaInfo", loader));
+        Assertions.assertSame(PackageMetaInfo.class, cache.get("dev.walgo.walib.PackageMetaInfo", loader));
+        Assertions.assertNull(cache.get("not.exists.Clazz", loader));
+        Assertions.assertNull(cache.get("not.exists.Clazz", loader));
+        Assertions.assertEquals(2, cache.getHits());
+        Assertions.assertEquals(2, cache.getMisses());
+        Assertions.assertSame(String.class, cache.get("java.lang.String", null));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Class<?>>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(executor.submit(() -> cache.get("dev.walgo.walib.ResourceUtils", loader)));
+            }
+            for (Future<Class<?>> future : futures) {
+                Assertions.assertSame(ResourceUtils.class, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertEquals(105, cache.getHits() + cache.getMisses());
+    }
+
+    @Test
+    public void testFindClassesFromResources_noInit() {
+        ClassLoader loader = getClass().getClassLoader();
+        List<Class<? extends AbstractList>> expected = ResourceUtils.findClassesFromResources(
+                loader, "dev.walgo", AbstractList.class, false);
+        Assertions.assertTrue(expected.contains(CompactStringList.class));
+        ResourceLoader.setParallel(true);
+        Assertions.assertEquals(expected,
+                ResourceUtils.findClassesFromResources(loader, "dev.walgo", AbstractList.class, false));
+    }
+
+    @Test
+    public void testFindFirstResourceFile() {
+        Assertions.assertEquals("test.dir/sub.dir/README.md",
+                ResourceUtils.findFirstResourceFile("README\\.md").orElse(null));
+        Assertions.assertTrue(ResourceUtils.findFirstResourceFile("not\\.exists$").isEmpty());
+    }
+
     @Test
     public void testGetClass() {
         String className = "dev.walgo.walib.PackageMetaInfo";
@@ -49,6 +209,92 @@ public class ResourceUtilsTest {
         Assertions.assertTrue(result.stream().anyMatch(it -> it.equals(PackageMetaInfo.class)));
     }
 
+    @Test
+    public void testFindClassesFromHeaders() {
+        List<Class<? extends ResourceUtilsTest>> result =
+                ResourceUtils.findClassesFromHeaders("dev.walgo.walib", ResourceUtilsTest.class);
+        Assertions.assertEquals(List.of(ResourceUtilsTest.class), result);
+        List<Class<?>> all = ResourceUtils.findClassesFromHeaders("dev.walgo.walib", Object.class);
+        Assertions.assertTrue(all.contains(PackageMetaInfo.class));
+    }
+
+    @Test
+    public void testFindImplementations() {
+        ClassHierarchy hierarchy = ResourceUtils.getClassHierarchy();
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        List<String> filters = hierarchy.findImplementations(ResourceFilter.class, classLoader);
+        Assertions.assertTrue(filters.contains(ResourceGlob.class.getName()));
+        Assertions.assertFalse(filters.contains(ResourceFilter.class.getName()));
+        // base type outside of hierarchy
+        List<String> lists = hierarchy.findImplementations(List.class, classLoader);
+        Assertions.assertTrue(lists.contains(CompactStringList.class.getName()));
+        Assertions.assertFalse(lists.contains(ResourceGlob.class.getName()));
+        Assertions.assertEquals(List.of(ResourceUtilsTest.class.getName()),
+                ResourceUtils.findImplementationNames("dev.walgo.walib", ResourceUtilsTest.class));
+        Assertions.assertEquals(List.of(ResourceUtilsTest.class),
+                ResourceUtils.findClassesFromHeaders(getClass().getClassLoader(), "dev.walgo.walib",
+                        ResourceUtilsTest.class));
+    }
+
+    @Test
+    public void testClassHierarchy_packageAndReuse() {
+        ClasspathSnapshot snapshot = ResourceLoader.refresh();
+        Assertions.assertEquals(List.of(ResourceUtilsTest.class.getName()),
+                ResourceUtils.findImplementationNames("dev.walgo.walib", ResourceUtilsTest.class));
+        Assertions.assertTrue(ResourceUtils.findImplementationNames("dev.walgo.walib", ResourceFilter.class)
+                .contains(ResourceGlob.class.getName()));
+        ClassHierarchy packageHierarchy = snapshot.getClassHierarchy("dev.walgo.walib");
+        Assertions.assertFalse(snapshot.isClassHierarchyRead());
+        Assertions.assertNull(packageHierarchy.get(Pattern.class.getName()));
+        Assertions.assertSame(packageHierarchy, snapshot.getClassHierarchy("dev.walgo.walib"));
+
+        ResourceLoader.setExecutor(Runnable::run);
+        ClassHierarchy hierarchy = snapshot.getClassHierarchy();
+        Assertions.assertTrue(snapshot.isClassHierarchyRead());
+        String container = snapshot.getIndex().getContainers("dev/walgo/walib/ResourceUtilsTest.class").get(0);
+        ClasspathSnapshot changed = snapshot.withResources(snapshot.getVersion() + 1, snapshot.getResources(),
+                System.currentTimeMillis(), List.of(container));
+        ClassHierarchy next = changed.getClassHierarchy();
+        // headers of not changed entries are reused, changed entry is read again
+        String unchanged = ResourceIndex.class.getName();
+        Assertions.assertSame(hierarchy.get(unchanged), next.get(unchanged));
+        Assertions.assertNotSame(hierarchy.get(ResourceUtilsTest.class.getName()),
+                next.get(ResourceUtilsTest.class.getName()));
+        Assertions.assertEquals(hierarchy.getClasses().size(), next.getClasses().size());
+    }
+
+    @Test
+    public void testClassFileInfo() throws Exception {
+        try (InputStream in = ResourceIndex.class.getResourceAsStream("ResourceIndex.class")) {
+            ClassFileInfo info = ClassFileInfo.read(in);
+            Assertions.assertEquals(ResourceIndex.class.getName(), info.getName());
+            Assertions.assertEquals(Object.class.getName(), info.getSuperName());
+            Assertions.assertTrue(info.isConcrete());
+        }
+    }
+
+    @Test
+    public void testClassFileInfo_annotations() throws Exception {
+        try (InputStream in = Object.class.getResourceAsStream("/java/lang/Runnable.class")) {
+            ClassFileInfo info = ClassFileInfo.read(in);
+            Assertions.assertTrue(info.isInterface());
+            Assertions.assertEquals(List.of(FunctionalInterface.class.getName()), info.getAnnotations());
+            ClassHierarchy hierarchy = new ClassHierarchy(Map.of(info.getName(), info), Map.of());
+            Assertions.assertEquals(List.of(Runnable.class.getName()),
+                    hierarchy.findAnnotated(FunctionalInterface.class.getName()));
+            Assertions.assertEquals(List.of(), hierarchy.findAnnotated(Deprecated.class.getName()));
+        }
+    }
+
+    @Test
+    public void testFindAnnotatedClassNames() {
+        Assertions.assertNotNull(ResourceUtils.getClassHierarchy().get(PackageMetaInfo.class.getName()));
+        List<String> result = ResourceUtils.findAnnotatedClassNames("dev.walgo.walib", FunctionalInterface.class);
+        Assertions.assertEquals(List.of(ResourceFilter.class.getName()), result);
+        Assertions.assertEquals(List.of(), ResourceUtils.findAnnotatedClassNames("dev.walgo.walib.db",
+                FunctionalInterface.class));
+    }
+
     @Test
     public void testFindClassesFromResources_all() {
         List<Class<?>> result = ResourceUtils.findClassesFromResources(null, Object.class);